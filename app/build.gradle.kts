@@ -29,6 +29,12 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests.all {
+            // ./gradlew test -Pbenchmarks=true also runs the *Benchmark timings
+            it.systemProperty("benchmarks", project.findProperty("benchmarks") ?: "false")
+        }
+    }
 }
 
 dependencies {
@@ -0,0 +1,129 @@
+package com.tishanyq.shopsync.Database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.tishanyq.shopsync.Models.Debt;
+import com.tishanyq.shopsync.Models.ImportResult;
+import com.tishanyq.shopsync.Models.Item;
+import com.tishanyq.shopsync.Models.Sale;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exports real tables through DataExporter with a small page size, so ties on
+ * the date and page boundaries are crossed, and reads the output back.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DataExporterTest {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long START = 1_700_000_000_000L;
+    private DatabaseHelper db;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = DatabaseHelper.getInstance(appContext);
+        db.deleteAllData();
+        deleteDebts();
+    }
+
+    @After
+    public void tearDown() {
+        db.deleteAllData();
+        deleteDebts();
+    }
+
+    // deleteAllData keeps the debt ledger, which the debts export would pick up
+    private void deleteDebts() {
+        SQLiteDatabase sqlite = db.getWritableDatabase();
+        sqlite.delete("debt_movements", null, null);
+        sqlite.delete("debts", null, null);
+    }
+
+    @Test
+    public void exportsSalesInRangeOldestFirst() throws Exception {
+        // Ten sales a day over three days, all sharing their day's timestamp
+        for (int day = 0; day < 3; day++) {
+            for (int i = 0; i < 10; i++) {
+                Sale sale = new Sale("LOCAL_1", "Bread, white", 1, 150, 4000);
+                sale.setPaymentMethod("CASH");
+                sale.setSaleDate(START + day * DAY);
+                db.addSale(sale);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int rows = new DataExporter(db, 4).export(DataExporter.Dataset.SALES, DataExporter.Format.CSV,
+                START + DAY, START + 2 * DAY, true, out, null);
+        assertEquals(20, rows);
+
+        CsvReader csv = new CsvReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), "UTF-8"), ',');
+        assertEquals("local_id", csv.readRecord()[0]);
+        String previous = "";
+        String[] record;
+        int count = 0;
+        while ((record = csv.readRecord()) != null) {
+            assertTrue(record[0].compareTo(previous) > 0);
+            assertEquals("Bread, white", record[2]);
+            assertEquals("1.50", record[4]);
+            previous = record[0];
+            count++;
+        }
+        assertEquals(20, count);
+    }
+
+    @Test
+    public void exportsDebtsAsJson() throws Exception {
+        for (int i = 0; i < 7; i++) {
+            Debt debt = new Debt("Customer " + i, 500 + i, 0, "CHANGE_OWED", null);
+            debt.setCreatedAt(START);
+            db.addDebt(debt);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int rows = new DataExporter(db, 3).export(DataExporter.Dataset.DEBTS, DataExporter.Format.JSON,
+                START, START + DAY, false, out, null);
+        assertEquals(7, rows);
+
+        JSONArray debts = new JSONObject(out.toString("UTF-8")).getJSONArray("debts");
+        assertEquals(7, debts.length());
+        assertEquals(5.0, debts.getJSONObject(0).getDouble("amount_usd"), 0.001);
+        assertTrue(debts.getJSONObject(0).isNull("cleared_at"));
+    }
+
+    @Test
+    public void catalogExportImportsAgain() throws IOException {
+        for (int i = 0; i < 25; i++) {
+            db.addItem(new Item("Item \"" + i + "\"", "Cat " + i % 3, 100 + i, 2000, i));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(25, new DataExporter(db, 10).export(DataExporter.Dataset.ITEMS,
+                DataExporter.Format.CSV, 0, 0, false, out, null));
+
+        db.deleteAllData();
+        ImportResult result = new ItemImporter(db).importItems(
+                new ByteArrayInputStream(out.toByteArray()), null);
+        assertEquals(25, result.getInserted());
+        assertEquals(0, result.getRejected());
+        assertEquals(9, db.getItemsByCategory("Cat 0").size());
+    }
+}
@@ -0,0 +1,157 @@
+package com.tishanyq.shopsync.Database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks with EXPLAIN QUERY PLAN that every hot query in DatabaseHelper is
+ * answered from an index rather than a full table scan or a temp sort. The SQL
+ * comes from the helper's own constants and builders, so the plans checked are
+ * those of the queries the app runs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperQueryPlanTest {
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = DatabaseHelper.getInstance(appContext).getReadableDatabase();
+    }
+
+    @Test
+    public void salesByDateRange_usesIndex() {
+        assertUsesIndex(DatabaseHelper.SQL_SALES_BY_DATE_RANGE, "0", "1");
+    }
+
+    @Test
+    public void salesPage_usesIndex() {
+        assertUsesIndex(DatabaseHelper.salesPageSql(false), "0", "9", "50");
+        assertUsesIndex(DatabaseHelper.salesPageSql(true), "0", "9", "5", "5", "SALE_5", "50");
+    }
+
+    @Test
+    public void exportPages_useIndex() {
+        // getSalesPageBefore runs the same seek as a sales export page
+        for (boolean hasAfter : new boolean[]{false, true}) {
+            String[] args = hasAfter
+                    ? new String[]{"0", "9", "5", "5", "ID_5", "1000"}
+                    : new String[]{"0", "9", "1000"};
+            assertUsesIndex(DatabaseHelper.salesExportPageSql(hasAfter), args);
+            assertUsesIndex(DatabaseHelper.debtsExportPageSql(hasAfter), args);
+        }
+        assertUsesIndex(DatabaseHelper.itemsExportPageSql(true), "LOCAL_5", "1000");
+        // The first catalog page starts at the head of the primary key
+        assertOrderedFullRead(DatabaseHelper.itemsExportPageSql(false), "1000");
+    }
+
+    @Test
+    public void activeDebts_usesIndex() {
+        assertUsesIndex(DatabaseHelper.SQL_ACTIVE_DEBTS);
+    }
+
+    @Test
+    public void searchDebts_usesIndex() {
+        for (boolean byName : new boolean[]{false, true}) {
+            for (boolean byDate : new boolean[]{false, true}) {
+                for (boolean includeCleared : new boolean[]{false, true}) {
+                    String sql = DatabaseHelper.searchDebtsSql(byName, byDate, includeCleared);
+                    String[] args = byName
+                            ? (byDate ? new String[]{"%a%", "0", "1"} : new String[]{"%a%"})
+                            : (byDate ? new String[]{"0", "1"} : new String[0]);
+                    // A leading-wildcard LIKE cannot seek, so with neither a
+                    // date range nor cleared = 0 the whole ledger is read
+                    if (includeCleared && !byDate) {
+                        assertOrderedFullRead(sql, args);
+                    } else {
+                        assertUsesIndex(sql, args);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void debtByCustomerName_usesIndex() {
+        assertUsesIndex(DatabaseHelper.SQL_DEBT_BY_CUSTOMER_NAME, "a");
+    }
+
+    @Test
+    public void totalActiveDebt_usesIndex() {
+        assertUsesIndex(DatabaseHelper.totalActiveDebtSql("balance_usd_cents"));
+        assertUsesIndex(DatabaseHelper.totalActiveDebtSql("balance_zwg_cents"));
+    }
+
+    @Test
+    public void itemsByCategory_usesIndex() {
+        assertUsesIndex(DatabaseHelper.SQL_ITEMS_BY_CATEGORY, "a");
+        assertUsesIndex(DatabaseHelper.SQL_ITEM_BY_LOCAL_ID, "a");
+    }
+
+    @Test
+    public void wholeCatalog_readsInIndexOrder() {
+        assertOrderedFullRead(DatabaseHelper.allItemsSql(DatabaseHelper.ORDER_BY_CATEGORY_NAME));
+        assertOrderedFullRead(DatabaseHelper.SQL_ALL_CATEGORIES);
+    }
+
+    @Test
+    public void unsyncedRecords_readsInIndexOrder() {
+        assertOrderedFullRead(DatabaseHelper.SQL_UNSYNCED_RECORDS);
+    }
+
+    @Test
+    public void pendingRows_usesIndex() {
+        for (String table : new String[]{"items", "sales", "debts"}) {
+            assertUsesIndex(DatabaseHelper.pendingRowsSql(table), table, "0", "9", "500");
+        }
+    }
+
+    @Test
+    public void lastSyncTime_usesIndex() {
+        assertUsesIndex(DatabaseHelper.SQL_LAST_SYNC_TIME);
+    }
+
+    // Every step must seek; any SCAN or temp sort fails
+    private void assertUsesIndex(String sql, String... args) {
+        String plan = explain(sql, args);
+        for (String step : plan.split("\n")) {
+            assertFalse("Full scan:\n" + plan, step.startsWith("SCAN"));
+            assertFalse("Temp sort:\n" + plan, step.contains("TEMP B-TREE"));
+        }
+        assertTrue("No index used:\n" + plan, plan.contains("SEARCH"));
+    }
+
+    // Reads that want every row by design are allowed to scan, but only an
+    // index that already yields the requested order
+    private void assertOrderedFullRead(String sql, String... args) {
+        String plan = explain(sql, args);
+        for (String step : plan.split("\n")) {
+            assertFalse("Temp sort:\n" + plan, step.contains("TEMP B-TREE"));
+            if (step.startsWith("SCAN")) {
+                assertTrue("Scan not in index order:\n" + plan, step.contains("USING")
+                        && (step.contains("INDEX") || step.contains("PRIMARY KEY")));
+            }
+        }
+    }
+
+    private String explain(String sql, String... args) {
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        StringBuilder plan = new StringBuilder();
+        int detailIndex = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) {
+            plan.append(cursor.getString(detailIndex)).append('\n');
+        }
+        cursor.close();
+        return plan.toString();
+    }
+}
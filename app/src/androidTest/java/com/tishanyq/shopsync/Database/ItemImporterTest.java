@@ -0,0 +1,127 @@
+package com.tishanyq.shopsync.Database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.tishanyq.shopsync.Models.ImportResult;
+import com.tishanyq.shopsync.Models.Item;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Imports generated catalogs through ItemImporter into the real database and
+ * checks counts, updates by name and category, row errors and the change log.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ItemImporterTest {
+    private static final String TAG = "ItemImporterTest";
+    private DatabaseHelper db;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = DatabaseHelper.getInstance(appContext);
+        db.deleteAllData();
+    }
+
+    @After
+    public void tearDown() {
+        db.deleteAllData();
+    }
+
+    @Test
+    public void importsLargeCatalog() throws IOException {
+        int rows = 50_000;
+        StringBuilder csv = new StringBuilder("name,category,price_usd,price_zwg,quantity\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("Item ").append(i).append(",Category ").append(i % 20)
+                    .append(',').append(i % 100).append(".25,").append(i).append(",5\n");
+        }
+
+        long start = System.nanoTime();
+        ImportResult result = new ItemImporter(db).importItems(stream(csv.toString()), null);
+        Log.i(TAG, "Imported " + rows + " rows in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        assertEquals(rows, result.getRowsRead());
+        assertEquals(rows, result.getInserted());
+        assertEquals(0, result.getRejected());
+        assertEquals(rows, db.getAllItems("name ASC").size());
+        assertEquals(rows, db.getPendingChangeCount());
+    }
+
+    @Test
+    public void updatesExistingItemsAndReportsBadRows() throws IOException {
+        Item bread = new Item("Bread", "Bakery", 100, 0, 3);
+        db.addItem(bread);
+        db.clearUnsyncedRecords();
+
+        String tsv = "Name\tCategory\tPrice USD\tStock\n" +
+                "Bread\tBakery\t1.20\t10\n" +
+                "Milk\t\t0.90\t4\n" +
+                "\tBakery\t1.00\t1\n" +
+                "Eggs\tDairy\tabc\t1\n" +
+                "Jam\tPantry\t2.50\t-1\n";
+        ImportResult result = new ItemImporter(db, 2).importItems(stream(tsv), null);
+
+        assertEquals(5, result.getRowsRead());
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(3, result.getRejected());
+        assertTrue(result.getErrors().get(0).startsWith("Line 4:"));
+
+        Item updated = db.getItemByLocalId(bread.getLocalId());
+        assertEquals(120, updated.getPriceUSDCents());
+        assertEquals(10, updated.getQuantity());
+        assertEquals(1, db.getItemsByCategory(ItemImporter.DEFAULT_CATEGORY).size());
+        assertEquals(2, db.getPendingChangeCount());
+    }
+
+    @Test
+    public void rejectsFileWithoutRequiredColumns() {
+        try {
+            new ItemImporter(db).importItems(stream("title,cost\nBread,1\n"), null);
+            fail("Expected a header error");
+        } catch (IOException expected) {
+            assertTrue(db.getAllItems("name ASC").isEmpty());
+        }
+    }
+
+    @Test
+    public void cancelKeepsBatchesAlreadyWritten() throws IOException {
+        StringBuilder csv = new StringBuilder("name,price_usd\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append("Item ").append(i).append(",1\n");
+        }
+        ItemImporter importer = new ItemImporter(db, 10);
+        try {
+            importer.importItems(stream(csv.toString()), progress -> {
+                if (progress.getInserted() >= 30) {
+                    importer.cancel();
+                }
+            });
+            fail("Expected the import to be cancelled");
+        } catch (CancellationException expected) {
+            List<Item> items = db.getAllItems("name ASC");
+            assertEquals(30, items.size());
+        }
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,240 @@
+package com.tishanyq.shopsync.Database;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Minimal HTTP/1.1 server on localhost standing in for the sync endpoints. It
+ * accepts every well-formed batch with a 200, and can be told to drop the
+ * connection part way through reading a given request's body or to refuse
+ * gzip-encoded bodies with a 415. GET requests
+ * page through the rows given to addServerChange, like /sync/changes.
+ */
+class StubSyncServer implements Closeable {
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+    private final List<JSONObject> acceptedBatches = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> bodySizes = Collections.synchronizedList(new ArrayList<>());
+    private final List<JSONObject> serverChanges = Collections.synchronizedList(new ArrayList<>());
+    private volatile int requestCount;
+    private volatile int dropRequest = -1;
+    private volatile int dropAfterBytes;
+    private volatile Runnable beforeResponse;
+    private volatile boolean rejectGzip;
+
+    StubSyncServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        thread = new Thread(this::serve, "StubSyncServer");
+        thread.start();
+    }
+
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    // Request numbers count from 1 over the server's lifetime
+    void dropConnection(int requestNumber, int afterBodyBytes) {
+        dropRequest = requestNumber;
+        dropAfterBytes = afterBodyBytes;
+    }
+
+    // Runs on the server thread after a batch is read and before its 200 goes out
+    void setBeforeResponse(Runnable beforeResponse) {
+        this.beforeResponse = beforeResponse;
+    }
+
+    void setRejectGzip(boolean rejectGzip) {
+        this.rejectGzip = rejectGzip;
+    }
+
+    // A row for pulls to return, with "table" set; change_seq is assigned in order
+    void addServerChange(JSONObject row) throws Exception {
+        row.put("change_seq", serverChanges.size() + 1);
+        serverChanges.add(row);
+    }
+
+    int getRequestCount() {
+        return requestCount;
+    }
+
+    List<JSONObject> getAcceptedBatches() {
+        return acceptedBatches;
+    }
+
+    // Decompressed size of each accepted request body
+    List<Integer> getBodySizes() {
+        return bodySizes;
+    }
+
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                handle(socket);
+            } catch (Exception e) {
+                // Socket closed by close() or by a dropped request
+            }
+        }
+    }
+
+    private void handle(Socket socket) throws Exception {
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        String requestLine = readLine(in);
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+        }
+
+        if (requestLine.startsWith("GET ")) {
+            ++requestCount;
+            respond(socket, changesPage(requestLine.split(" ")[1]));
+            return;
+        }
+
+        int number = ++requestCount;
+        int limit = number == dropRequest ? dropAfterBytes : Integer.MAX_VALUE;
+        byte[] body = "chunked".equalsIgnoreCase(headers.get("transfer-encoding"))
+                ? readChunked(in, limit)
+                : readFixed(in, Integer.parseInt(headers.getOrDefault("content-length", "0")), limit);
+        if (number == dropRequest) {
+            return; // Closing without a response
+        }
+
+        if ("gzip".equalsIgnoreCase(headers.get("content-encoding"))) {
+            if (rejectGzip) {
+                respond(socket, "415 Unsupported Media Type", "{\"error\": \"Unsupported encoding\"}");
+                return;
+            }
+            body = gunzip(body);
+        }
+        acceptedBatches.add(new JSONObject(new String(body, StandardCharsets.UTF_8)));
+        bodySizes.add(body.length);
+        Runnable hook = beforeResponse;
+        if (hook != null) {
+            hook.run();
+        }
+
+        respond(socket, "{\"message\": \"Sync completed successfully\"}");
+    }
+
+    private String changesPage(String target) throws Exception {
+        Map<String, String> query = new HashMap<>();
+        for (String pair : target.substring(target.indexOf('?') + 1).split("&")) {
+            int equals = pair.indexOf('=');
+            query.put(pair.substring(0, equals), pair.substring(equals + 1));
+        }
+        int since = Integer.parseInt(query.get("since"));
+        int limit = Integer.parseInt(query.get("limit"));
+
+        JSONArray changes = new JSONArray();
+        int next = since;
+        synchronized (serverChanges) {
+            for (int i = since; i < serverChanges.size() && changes.length() < limit; i++) {
+                changes.put(serverChanges.get(i));
+                next = i + 1;
+            }
+        }
+        JSONObject page = new JSONObject();
+        page.put("changes", changes);
+        page.put("next_token", next);
+        page.put("has_more", next < serverChanges.size());
+        return page.toString();
+    }
+
+    private static void respond(Socket socket, String body) throws IOException {
+        respond(socket, "200 OK", body);
+    }
+
+    private static void respond(Socket socket, String status, String body) throws IOException {
+        byte[] response = body.getBytes(StandardCharsets.UTF_8);
+        OutputStream out = socket.getOutputStream();
+        out.write(("HTTP/1.1 " + status + "\r\n" +
+                "Content-Type: application/json\r\n" +
+                "Content-Length: " + response.length + "\r\n" +
+                "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(response);
+        out.flush();
+    }
+
+    private static byte[] readChunked(InputStream in, int limit) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (true) {
+            String sizeLine = readLine(in);
+            int semicolon = sizeLine.indexOf(';');
+            int size = Integer.parseInt(semicolon >= 0 ? sizeLine.substring(0, semicolon) : sizeLine, 16);
+            if (size == 0) {
+                readLine(in); // Blank line after the last chunk
+                return body.toByteArray();
+            }
+            for (int i = 0; i < size; i++) {
+                int b = in.read();
+                if (b < 0) throw new IOException("Truncated chunk");
+                body.write(b);
+                if (body.size() >= limit) {
+                    return body.toByteArray();
+                }
+            }
+            readLine(in); // CRLF after chunk data
+        }
+    }
+
+    private static byte[] readFixed(InputStream in, int length, int limit) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < length && body.size() < limit; i++) {
+            int b = in.read();
+            if (b < 0) throw new IOException("Truncated body");
+            body.write(b);
+        }
+        return body.toByteArray();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) >= 0 && b != '\n') {
+            if (b != '\r') line.append((char) b);
+        }
+        if (b < 0 && line.length() == 0) throw new IOException("Connection closed");
+        return line.toString();
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        try {
+            thread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.tishanyq.shopsync.Database;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.tishanyq.shopsync.Models.Item;
+import com.tishanyq.shopsync.Models.SalesSummary;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pulls pages of server changes from the stub server into a cleared
+ * database, the way a reinstalled device restores.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SyncPullerTest {
+    private static final long SALE_DATE = 1_700_000_000_000L;
+
+    private DatabaseHelper db;
+    private StubSyncServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = DatabaseHelper.getInstance(appContext);
+        db.deleteAllData();
+        db.saveSyncPullToken(0);
+        server = new StubSyncServer();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        db.deleteAllData();
+        db.saveSyncPullToken(0);
+    }
+
+    @Test
+    public void restoresAllPagesAndSavesToken() throws Exception {
+        for (int i = 0; i < 2500; i++) {
+            server.addServerChange(item(String.format("PULL_ITEM_%05d", i), "Pulled item " + i, 4));
+        }
+        for (int i = 0; i < 20; i++) {
+            server.addServerChange(sale("PULL_SALE_" + i, 2.5));
+        }
+
+        SyncPuller puller = new SyncPuller(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP", 1000, 200);
+        assertEquals(200, puller.pull());
+
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2520, puller.getRowCount());
+        assertEquals(2520, db.getSyncPullToken());
+        Item item = db.getItemByLocalId("PULL_ITEM_01234");
+        assertNotNull(item);
+        assertTrue(item.isSynced());
+        assertEquals(150, item.getPriceUSDCents());
+        assertEquals(1, db.searchItems("Pulled item 1234", 10).size());
+        // Pulled rows aren't echoed back as local changes
+        assertEquals(0, db.getPendingChangeCount());
+
+        SalesSummary rollup = db.getSalesRollup(SALE_DATE, SALE_DATE);
+        assertEquals(20, rollup.getTransactions());
+        assertEquals(5000, rollup.getTotalUSDCents());
+
+        // Caught up: the next pull asks once and gets nothing
+        assertEquals(200, new SyncPuller(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP").pull());
+        assertEquals(4, server.getRequestCount());
+        assertEquals(20, db.getSalesRollup(SALE_DATE, SALE_DATE).getTransactions());
+    }
+
+    @Test
+    public void keepsRecordsWithPendingLocalChanges() throws Exception {
+        Item local = new Item("Local name", "Pull test", 100, 3000, 7);
+        local.setLocalId("PULL_LOCAL");
+        db.addItem(local);
+        server.addServerChange(item("PULL_LOCAL", "Server name", 2));
+
+        assertEquals(200, new SyncPuller(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP").pull());
+
+        Item item = db.getItemByLocalId("PULL_LOCAL");
+        assertEquals("Local name", item.getName());
+        assertEquals(7, item.getQuantity());
+    }
+
+    private static JSONObject item(String localId, String name, int quantity) throws Exception {
+        JSONObject row = new JSONObject();
+        row.put("id", "ITEM_" + localId);
+        row.put("local_id", localId);
+        row.put("name", name);
+        row.put("category", "Pull test");
+        row.put("price_usd", 1.5);
+        row.put("price_zwg", 40);
+        row.put("quantity", quantity);
+        row.put("created_at", SALE_DATE);
+        row.put("table", "items");
+        return row;
+    }
+
+    private static JSONObject sale(String localId, double totalUSD) throws Exception {
+        JSONObject row = new JSONObject();
+        row.put("id", "SALE_" + localId);
+        row.put("local_id", localId);
+        row.put("item_id", "PULL_ITEM_00000");
+        row.put("item_name", "Pulled item 0");
+        row.put("quantity", 1);
+        row.put("total_usd", totalUSD);
+        row.put("total_zwg", 60);
+        row.put("payment_method", "CASH");
+        row.put("debt_used_usd", 0);
+        row.put("debt_used_zwg", 0);
+        row.put("debt_id", JSONObject.NULL);
+        row.put("sale_date", SALE_DATE);
+        row.put("table", "sales");
+        return row;
+    }
+}
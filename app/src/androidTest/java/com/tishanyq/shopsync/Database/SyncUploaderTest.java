@@ -0,0 +1,223 @@
+package com.tishanyq.shopsync.Database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.tishanyq.shopsync.Models.Debt;
+import com.tishanyq.shopsync.Models.Item;
+import com.tishanyq.shopsync.Models.Payment;
+import com.tishanyq.shopsync.Models.SyncCheckpoint;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs batched sync uploads against a local stub server, including one that
+ * drops the connection mid-body, and checks that the next attempt resumes
+ * after the last acknowledged batch.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SyncUploaderTest {
+    private static final String TEST_DEBT = "Sync test debt";
+
+    private DatabaseHelper db;
+    private StubSyncServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = DatabaseHelper.getInstance(appContext);
+        db.deleteAllData();
+        db.clearSyncCheckpoint();
+        db.setSyncGzipEnabled(true);
+        server = new StubSyncServer();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        db.deleteAllData();
+        db.clearSyncCheckpoint();
+        deleteTestDebts();
+    }
+
+    @Test
+    public void resumesAfterLastAcknowledgedBatch() throws IOException {
+        addItems(120);
+        server.dropConnection(3, 100);
+
+        SyncUploader first = new SyncUploader(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP", 25, 1 << 20);
+        try {
+            first.upload();
+            fail("Expected the dropped connection to fail the upload");
+        } catch (IOException expected) {
+            // Third batch cut off mid-body
+        }
+        assertEquals(2, first.getBatchCount());
+        SyncCheckpoint checkpoint = db.getSyncCheckpoint();
+        assertNotNull(checkpoint);
+        assertEquals("items", checkpoint.getTableName());
+        assertEquals(50, receivedItems().size());
+
+        SyncUploader second = new SyncUploader(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP", 25, 1 << 20);
+        assertEquals(200, second.upload());
+        assertEquals(3, second.getBatchCount());
+        assertNull(db.getSyncCheckpoint());
+
+        Map<String, Integer> received = receivedItems();
+        assertEquals(120, received.size());
+        for (Integer count : received.values()) {
+            assertEquals("Item uploaded more than once", 1, count.intValue());
+        }
+    }
+
+    @Test
+    public void splitsBatchesByBytes() throws Exception {
+        addItems(300);
+        long maxBytes = 16 * 1024;
+
+        SyncUploader uploader = new SyncUploader(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP", 500, maxBytes);
+        assertEquals(200, uploader.upload());
+
+        assertTrue(uploader.getBatchCount() > 1);
+        for (int size : server.getBodySizes()) {
+            // One encoder buffer plus one row of overrun
+            assertTrue("Batch of " + size + " bytes", size < maxBytes + 8192 + 512);
+        }
+        assertEquals(300, receivedItems().size());
+        assertTrue(uploader.getWireBytes() < uploader.getRawBytes());
+    }
+
+    @Test
+    public void countsOnlyThePlainResendAfterGzipIsRejected() throws IOException {
+        addItems(50);
+        server.setRejectGzip(true);
+
+        SyncUploader uploader = new SyncUploader(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP", 500, 1 << 20);
+        assertEquals(200, uploader.upload());
+
+        assertFalse(db.isSyncGzipEnabled());
+        assertEquals(2, server.getRequestCount());
+        // Plain request and plain response: nothing of the refused attempt left in the totals
+        assertEquals(uploader.getRawBytes(), uploader.getWireBytes());
+        long response = "{\"message\": \"Sync completed successfully\"}".length();
+        assertEquals(server.getBodySizes().get(0) + response, uploader.getRawBytes());
+    }
+
+    @Test
+    public void keepsChangesMadeWhileBatchInFlight() throws IOException {
+        addItems(10);
+        // A sale on the till while the upload is waiting for its response
+        server.setBeforeResponse(() -> db.updateItemQuantity("TEST_ITEM_00003", 9));
+
+        SyncUploader uploader = new SyncUploader(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP", 500, 1 << 20);
+        assertEquals(200, uploader.upload());
+
+        assertTrue(db.hasPendingRows("items", 0, db.getLastChangeId()));
+        assertFalse(db.getItemByLocalId("TEST_ITEM_00003").isSynced());
+        assertTrue(db.getItemByLocalId("TEST_ITEM_00004").isSynced());
+
+        server.setBeforeResponse(null);
+        SyncUploader next = new SyncUploader(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP", 500, 1 << 20);
+        assertEquals(200, next.upload());
+        assertEquals(2, receivedItems().get("TEST_ITEM_00003").intValue());
+        assertFalse(db.hasPendingRows("items", 0, db.getLastChangeId()));
+        assertTrue(db.getItemByLocalId("TEST_ITEM_00003").isSynced());
+    }
+
+    @Test
+    public void writesAfterUploadMarkRecordsUnsyncedAgain() throws IOException {
+        addItems(3);
+        db.addDebt(new Debt(TEST_DEBT + " A", 500, 0, "CHANGE_OWED", null));
+        db.addDebt(new Debt(TEST_DEBT + " B", 500, 0, "CHANGE_OWED", null));
+        SyncUploader uploader = new SyncUploader(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP", 500, 1 << 20);
+        assertEquals(200, uploader.upload());
+        Debt cleared = testDebt("A");
+        Debt used = testDebt("B");
+        assertTrue(cleared.isSynced());
+        assertTrue(used.isSynced());
+
+        db.updateItemQuantity("TEST_ITEM_00000", 4);
+        Map<String, Integer> cart = new HashMap<>();
+        cart.put("TEST_ITEM_00001", 1);
+        assertTrue(db.commitCheckout(cart, null, Payment.debt(used.getLocalId(), 100, 0)).isSuccess());
+        db.clearDebt(cleared.getLocalId());
+
+        assertFalse(db.getItemByLocalId("TEST_ITEM_00000").isSynced());
+        assertFalse(db.getItemByLocalId("TEST_ITEM_00001").isSynced());
+        assertTrue(db.getItemByLocalId("TEST_ITEM_00002").isSynced());
+        assertFalse(testDebt("A").isSynced());
+        assertFalse(testDebt("B").isSynced());
+    }
+
+    @Test
+    public void cancelStopsBetweenBatches() throws IOException {
+        addItems(100);
+        SyncUploader uploader = new SyncUploader(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP", 25, 1 << 20);
+        // Cancelled while the first batch is in flight
+        server.setBeforeResponse(uploader::cancel);
+        try {
+            uploader.upload();
+            fail("Expected the upload to be cancelled");
+        } catch (CancellationException expected) {
+            // Stopped before the second batch
+        }
+        assertEquals(1, uploader.getBatchCount());
+        assertEquals(25, receivedItems().size());
+        assertNotNull(db.getSyncCheckpoint());
+
+        server.setBeforeResponse(null);
+        SyncUploader next = new SyncUploader(db, new BackendClient(server.getBaseUrl()), "SHOP", "APP", 25, 1 << 20);
+        assertEquals(200, next.upload());
+        assertEquals(3, next.getBatchCount());
+        assertEquals(100, receivedItems().size());
+    }
+
+    private Debt testDebt(String suffix) {
+        return db.searchDebts(TEST_DEBT + " " + suffix, 0, 0, true).get(0);
+    }
+
+    // deleteAllData keeps debts, so the ones made here are removed by name
+    private void deleteTestDebts() {
+        SQLiteDatabase sqlite = db.getWritableDatabase();
+        String[] name = {TEST_DEBT + "%"};
+        sqlite.delete("debt_movements", "debt_id IN (SELECT local_id FROM debts WHERE customer_name LIKE ?)", name);
+        sqlite.delete("debts", "customer_name LIKE ?", name);
+    }
+
+    private void addItems(int count) {
+        for (int i = 0; i < count; i++) {
+            Item item = new Item("Test item " + i, "Sync test", 125, 3500, 10);
+            item.setLocalId(String.format("TEST_ITEM_%05d", i));
+            db.addItem(item);
+        }
+    }
+
+    private Map<String, Integer> receivedItems() {
+        Map<String, Integer> counts = new HashMap<>();
+        synchronized (server.getAcceptedBatches()) {
+            for (JSONObject batch : server.getAcceptedBatches()) {
+                JSONArray items = batch.optJSONArray("items");
+                for (int i = 0; items != null && i < items.length(); i++) {
+                    String localId = items.optJSONObject(i).optString("local_id");
+                    counts.merge(localId, 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+}
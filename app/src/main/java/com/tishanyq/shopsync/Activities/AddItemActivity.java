@@ -5,6 +5,7 @@ import android.widget.*;
 import androidx.appcompat.app.AppCompatActivity;
 import com.tishanyq.shopsync.Database.DatabaseHelper;
 import com.tishanyq.shopsync.Models.Item;
+import com.tishanyq.shopsync.Models.Money;
 import com.google.android.material.textfield.TextInputEditText;
 import com.tishanyq.shopsync.R;
 
@@ -19,7 +20,7 @@ public class AddItemActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_add_item);
 
-        db = new DatabaseHelper(this);
+        db = DatabaseHelper.getInstance(this);
 
         etItemName = findViewById(R.id.et_item_name);
         etPriceUSD = findViewById(R.id.et_price_usd);
@@ -54,8 +55,8 @@ public class AddItemActivity extends AppCompatActivity {
         }
 
         try {
-            double priceUSD = Double.parseDouble(priceUSDStr);
-            double priceZWG = Double.parseDouble(priceZWGStr);
+            long priceUSD = Money.parseCents(priceUSDStr);
+            long priceZWG = Money.parseCents(priceZWGStr);
             int quantity = Integer.parseInt(quantityStr);
 
             Item item = new Item(name, category, priceUSD, priceZWG, quantity);
@@ -24,6 +24,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.tishanyq.shopsync.Database.DatabaseHelper;
 import com.tishanyq.shopsync.Models.Debt;
+import com.tishanyq.shopsync.Models.Money;
 import com.tishanyq.shopsync.R;
 
 import java.text.SimpleDateFormat;
@@ -49,7 +50,7 @@ public class Debts extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_debts);
 
-        db = new DatabaseHelper(this);
+        db = DatabaseHelper.getInstance(this);
 
         etSearch = findViewById(R.id.et_search);
         btnFilterDate = findViewById(R.id.btn_filter_date);
@@ -134,18 +135,16 @@ public class Debts extends AppCompatActivity {
     }
 
     private void updateTotals() {
-        double totalUSD = db.getTotalActiveDebtUSD();
-        double totalZWG = db.getTotalActiveDebtZWG();
-
-        tvTotalDebtUSD.setText(String.format("$%.2f", totalUSD));
-        tvTotalDebtZWG.setText(String.format("ZWG %.2f", totalZWG));
+        tvTotalDebtUSD.setText("$" + Money.format(db.getTotalActiveDebtUSDCents()));
+        tvTotalDebtZWG.setText("ZWG " + Money.format(db.getTotalActiveDebtZWGCents()));
     }
 
     private void clearDebt(Debt debt) {
         new AlertDialog.Builder(this)
                 .setTitle("Clear Debt")
                 .setMessage("Mark this debt as cleared?\n\n" + debt.getCustomerName() +
-                        "\n$" + debt.getAmountUSD() + " / ZWG " + debt.getAmountZWG())
+                        "\n$" + Money.format(debt.getBalanceUSDCents()) +
+                        " / ZWG " + Money.format(debt.getBalanceZWGCents()))
                 .setPositiveButton("Clear", (dialog, which) -> {
                     db.clearDebt(debt.getLocalId());
                     Toast.makeText(this, "Debt cleared", Toast.LENGTH_SHORT).show();
@@ -176,8 +175,8 @@ public class Debts extends AppCompatActivity {
             Debt debt = debts.get(position);
 
             holder.tvCustomerName.setText(debt.getCustomerName());
-            holder.tvAmountUSD.setText("$" + String.format("%.2f", debt.getAmountUSD()));
-            holder.tvAmountZWG.setText("ZWG " + String.format("%.2f", debt.getAmountZWG()));
+            holder.tvAmountUSD.setText("$" + Money.format(debt.getBalanceUSDCents()));
+            holder.tvAmountZWG.setText("ZWG " + Money.format(debt.getBalanceZWGCents()));
             holder.tvDate.setText(dateFormat.format(new Date(debt.getCreatedAt())));
             holder.tvType.setText(debt.getType().equals("CHANGE_OWED") ? "Change Owed" : "Credit Used");
 
@@ -17,19 +17,16 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
+import com.tishanyq.shopsync.Database.BackendClient;
 import com.tishanyq.shopsync.Database.DatabaseHelper;
 import com.tishanyq.shopsync.Models.Shop;
 import com.tishanyq.shopsync.Database.SyncManager;
 import com.tishanyq.shopsync.R;
+import com.tishanyq.shopsync.Utils.AutoSync;
 import com.google.android.material.textfield.TextInputEditText;
 
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -41,15 +38,14 @@ public class HomeActivity extends AppCompatActivity {
     private ExecutorService executor;
     private Handler mainHandler;
     
-    private static final String BACKEND_URL = "https://shopsync-qx6o.onrender.com"; //"http://192.168.1.13:5000";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_home);
 
-        db = new DatabaseHelper(this);
-        syncManager = new SyncManager(this);
+        db = DatabaseHelper.getInstance(this);
+        syncManager = new SyncManager(this, db);
         executor = Executors.newSingleThreadExecutor();
         mainHandler = new Handler(Looper.getMainLooper());
 
@@ -58,6 +54,7 @@ public class HomeActivity extends AppCompatActivity {
         checkSyncStatus();
         checkLicenseStatus();
         setupClickListeners();
+        AutoSync.getInstance(this).start();
     }
 
     private void initViews() {
@@ -204,7 +201,7 @@ public class HomeActivity extends AppCompatActivity {
         String appId = db.getAppId();
         String shopId = db.getStoredShopId();
         
-        if (BACKEND_URL.isEmpty()) {
+        if (!BackendClient.getInstance().isConfigured()) {
             mainHandler.postDelayed(() -> {
                 long currentTime = System.currentTimeMillis();
                 long expiresAt = currentTime + (30L * 24 * 60 * 60 * 1000);
@@ -221,28 +218,11 @@ public class HomeActivity extends AppCompatActivity {
                 JSONObject jsonBody = new JSONObject();
                 jsonBody.put("product_key", productKey);
                 
-                URL url = new URL(BACKEND_URL + "/api/shops/" + shopId + "/devices/" + appId + "/renew");
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setDoOutput(true);
+                BackendClient.Response response = BackendClient.getInstance().post(
+                        "/api/shops/" + shopId + "/devices/" + appId + "/renew", appId, jsonBody);
                 
-                try (OutputStream os = conn.getOutputStream()) {
-                    os.write(jsonBody.toString().getBytes("UTF-8"));
-                }
-                
-                int responseCode = conn.getResponseCode();
-                
-                if (responseCode == 200) {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-                    
-                    JSONObject responseJson = new JSONObject(response.toString());
+                if (response.getCode() == 200) {
+                    JSONObject responseJson = new JSONObject(response.getBody());
                     long activatedAt = responseJson.getLong("activated_at");
                     long expiresAt = responseJson.getLong("expires_at");
                     int deviceSlot = responseJson.getInt("device_slot");
@@ -254,15 +234,7 @@ public class HomeActivity extends AppCompatActivity {
                         checkLicenseStatus();
                     });
                 } else {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-                    
-                    JSONObject errorJson = new JSONObject(response.toString());
+                    JSONObject errorJson = new JSONObject(response.getBody());
                     String errorMessage = errorJson.optString("error", "Renewal failed");
                     
                     mainHandler.post(() -> {
@@ -273,8 +245,6 @@ public class HomeActivity extends AppCompatActivity {
                         tvError.setVisibility(View.VISIBLE);
                     });
                 }
-                
-                conn.disconnect();
             } catch (Exception e) {
                 e.printStackTrace();
                 mainHandler.post(() -> {
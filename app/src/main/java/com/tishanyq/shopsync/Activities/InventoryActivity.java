@@ -1,32 +1,54 @@
 package com.tishanyq.shopsync.Activities;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import android.view.*;
 import android.widget.*;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.tishanyq.shopsync.Database.DatabaseHelper;
+import com.tishanyq.shopsync.Database.ItemImporter;
+import com.tishanyq.shopsync.Models.ImportResult;
 import com.tishanyq.shopsync.Models.Item;
+import com.tishanyq.shopsync.Models.Money;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.tishanyq.shopsync.R;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class InventoryActivity extends AppCompatActivity {
+    private static final String TAG = "InventoryActivity";
     private Spinner spinnerCategory;
     private RecyclerView recyclerView;
     private FloatingActionButton fabAdd;
     private DatabaseHelper db;
     private ItemAdapter adapter;
+    private ExecutorService executor;
+    private Handler mainHandler;
+    private AlertDialog importDialog;
+
+    private final ActivityResultLauncher<String[]> pickCatalog = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::importCatalog);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_inventory);
 
-        db = new DatabaseHelper(this);
+        db = DatabaseHelper.getInstance(this);
 
         spinnerCategory = findViewById(R.id.spinner_category);
         recyclerView = findViewById(R.id.recycler_view);
@@ -35,8 +57,23 @@ public class InventoryActivity extends AppCompatActivity {
         setupCategorySpinner();
         setupRecyclerView();
 
+        executor = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
+
         fabAdd.setOnClickListener(v ->
                 startActivity(new Intent(this, AddItemActivity.class)));
+        findViewById(R.id.btn_import).setOnClickListener(v -> pickCatalog.launch(new String[]{
+                "text/csv", "text/comma-separated-values", "text/tab-separated-values", "text/plain"}));
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // A running import is left to finish its file
+        executor.shutdown();
+        if (importDialog != null) {
+            importDialog.dismiss();
+        }
     }
 
     @Override
@@ -76,9 +113,7 @@ public class InventoryActivity extends AppCompatActivity {
         List<Item> items;
 
         if (selectedCategory.equals("All Categories")) {
-            items = db.getAllCategories().stream()
-                    .flatMap(cat -> db.getItemsByCategory(cat).stream())
-                    .collect(java.util.stream.Collectors.toList());
+            items = db.getAllItems(DatabaseHelper.ORDER_BY_CATEGORY_NAME);
         } else {
             items = db.getItemsByCategory(selectedCategory);
         }
@@ -86,6 +121,82 @@ public class InventoryActivity extends AppCompatActivity {
         adapter.setItems(items);
     }
 
+    // Bulk-loads a supplier's catalog: CSV or TSV with a header row of name,
+    // category, price_usd, price_zwg and quantity
+    private void importCatalog(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+        ItemImporter importer = new ItemImporter(db);
+        importDialog = new AlertDialog.Builder(this)
+                .setTitle("Importing Items")
+                .setMessage("Reading file...")
+                .setCancelable(false)
+                .setNegativeButton("Cancel", (dialog, which) -> importer.cancel())
+                .show();
+
+        executor.execute(() -> {
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("Could not open the file");
+                }
+                ImportResult result = importer.importItems(in, progress -> {
+                    String message = progress.getRowsRead() + " rows read, " +
+                            (progress.getInserted() + progress.getUpdated()) + " saved";
+                    mainHandler.post(() -> {
+                        if (!isDestroyed()) {
+                            importDialog.setMessage(message);
+                        }
+                    });
+                });
+                mainHandler.post(() -> showImportResult(result));
+            } catch (CancellationException e) {
+                mainHandler.post(() -> finishImport("Import cancelled"));
+            } catch (IOException e) {
+                mainHandler.post(() -> finishImport("Import failed: " + e.getMessage()));
+            } catch (RuntimeException e) {
+                // e.g. SQLiteFullException from a batch or SecurityException
+                // from the file's provider; the dialog can't be dismissed otherwise
+                Log.e(TAG, "Import failed", e);
+                mainHandler.post(() -> finishImport("Import failed: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void finishImport(String message) {
+        if (isDestroyed()) {
+            return;
+        }
+        importDialog.dismiss();
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+        setupCategorySpinner();
+        loadItems();
+    }
+
+    private void showImportResult(ImportResult result) {
+        if (isDestroyed()) {
+            return;
+        }
+        importDialog.dismiss();
+        setupCategorySpinner();
+        loadItems();
+        StringBuilder message = new StringBuilder()
+                .append("Added: ").append(result.getInserted())
+                .append("\nUpdated: ").append(result.getUpdated())
+                .append("\nSkipped: ").append(result.getRejected());
+        for (String error : result.getErrors()) {
+            message.append("\n").append(error);
+        }
+        if (result.getRejected() > result.getErrors().size()) {
+            message.append("\n...");
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Import Complete")
+                .setMessage(message)
+                .setPositiveButton("OK", null)
+                .show();
+    }
+
     private class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder> {
         private List<Item> items;
 
@@ -106,8 +217,8 @@ public class InventoryActivity extends AppCompatActivity {
             Item item = items.get(position);
             holder.tvName.setText(item.getName());
             holder.tvCategory.setText(item.getCategory());
-            holder.tvPriceUSD.setText("$" + item.getPriceUSD());
-            holder.tvPriceZWG.setText("ZWG " + item.getPriceZWG());
+            holder.tvPriceUSD.setText("$" + Money.format(item.getPriceUSDCents()));
+            holder.tvPriceZWG.setText("ZWG " + Money.format(item.getPriceZWGCents()));
             holder.tvQuantity.setText("Qty: " + item.getQuantity());
             holder.tvId.setText(item.getId() != null ? "ID: " + item.getId() : "Pending Sync");
         }
@@ -25,7 +25,7 @@ public class PinLoginActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_pin_login);
 
-        db = new DatabaseHelper(this);
+        db = DatabaseHelper.getInstance(this);
 
         etPin1 = findViewById(R.id.et_pin_1);
         etPin2 = findViewById(R.id.et_pin_2);
@@ -14,6 +14,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.*;
 import androidx.appcompat.app.AppCompatActivity;
+import com.tishanyq.shopsync.Database.BackendClient;
 import com.tishanyq.shopsync.Database.DatabaseHelper;
 import com.tishanyq.shopsync.Models.Shop;
 import com.google.android.material.textfield.TextInputEditText;
@@ -21,11 +22,6 @@ import com.tishanyq.shopsync.R;
 
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -37,14 +33,13 @@ public class RegisterActivity extends AppCompatActivity {
     private ExecutorService executor;
     private Handler mainHandler;
     
-    private static final String BACKEND_URL = "https://shopsync-qx6o.onrender.com"; //"http://192.168.1.13:5000";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_register);
 
-        db = new DatabaseHelper(this);
+        db = DatabaseHelper.getInstance(this);
         executor = Executors.newSingleThreadExecutor();
         mainHandler = new Handler(Looper.getMainLooper());
 
@@ -110,7 +105,7 @@ public class RegisterActivity extends AppCompatActivity {
         btnRegister.setEnabled(false);
         btnRegister.setText("Registering...");
         
-        if (BACKEND_URL.isEmpty()) {
+        if (!BackendClient.getInstance().isConfigured()) {
             long result = db.saveShop(shop);
             if (result != -1) {
                 String tempAppId = "APP_" + System.currentTimeMillis();
@@ -136,28 +131,10 @@ public class RegisterActivity extends AppCompatActivity {
                 jsonBody.put("address", address);
                 jsonBody.put("pin", pin);
                 
-                URL url = new URL(BACKEND_URL + "/api/shops");
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setDoOutput(true);
+                BackendClient.Response response = BackendClient.getInstance().post("/api/shops", null, jsonBody);
                 
-                try (OutputStream os = conn.getOutputStream()) {
-                    os.write(jsonBody.toString().getBytes("UTF-8"));
-                }
-                
-                int responseCode = conn.getResponseCode();
-                
-                if (responseCode == 201) {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-                    
-                    JSONObject responseJson = new JSONObject(response.toString());
+                if (response.getCode() == 201) {
+                    JSONObject responseJson = new JSONObject(response.getBody());
                     String shopId = responseJson.getString("shop_id");
                     String appId = responseJson.getString("app_id");
                     int deviceSlot = responseJson.getInt("device_slot");
@@ -172,22 +149,12 @@ public class RegisterActivity extends AppCompatActivity {
                         showProductKeyDialog(appId, shopId, deviceSlot);
                     });
                 } else {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-                    
                     mainHandler.post(() -> {
                         btnRegister.setEnabled(true);
                         btnRegister.setText("Register");
-                        Toast.makeText(RegisterActivity.this, "Registration failed: " + response.toString(), Toast.LENGTH_LONG).show();
+                        Toast.makeText(RegisterActivity.this, "Registration failed: " + response.getBody(), Toast.LENGTH_LONG).show();
                     });
                 }
-                
-                conn.disconnect();
             } catch (Exception e) {
                 e.printStackTrace();
                 mainHandler.post(() -> {
@@ -276,7 +243,7 @@ public class RegisterActivity extends AppCompatActivity {
                                     AlertDialog dialog, ProgressBar progressBar, Button btnActivate,
                                     TextInputEditText etProductKey, TextView tvError) {
         
-        if (BACKEND_URL.isEmpty()) {
+        if (!BackendClient.getInstance().isConfigured()) {
             mainHandler.postDelayed(() -> {
                 long currentTime = System.currentTimeMillis();
                 long expiresAt = currentTime + (30L * 24 * 60 * 60 * 1000);
@@ -296,28 +263,11 @@ public class RegisterActivity extends AppCompatActivity {
                 jsonBody.put("product_key", productKey);
                 jsonBody.put("app_id", appId);
                 
-                URL url = new URL(BACKEND_URL + "/api/shops/" + shopId + "/product-keys/activate");
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setDoOutput(true);
+                BackendClient.Response response = BackendClient.getInstance().post(
+                        "/api/shops/" + shopId + "/product-keys/activate", appId, jsonBody);
                 
-                try (OutputStream os = conn.getOutputStream()) {
-                    os.write(jsonBody.toString().getBytes("UTF-8"));
-                }
-                
-                int responseCode = conn.getResponseCode();
-                
-                if (responseCode == 200) {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-                    
-                    JSONObject responseJson = new JSONObject(response.toString());
+                if (response.getCode() == 200) {
+                    JSONObject responseJson = new JSONObject(response.getBody());
                     long activatedAt = responseJson.getLong("activated_at");
                     long expiresAt = responseJson.getLong("expires_at");
                     
@@ -330,15 +280,7 @@ public class RegisterActivity extends AppCompatActivity {
                         finish();
                     });
                 } else {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-                    
-                    JSONObject errorJson = new JSONObject(response.toString());
+                    JSONObject errorJson = new JSONObject(response.getBody());
                     String errorMessage = errorJson.optString("error", "Activation failed");
                     
                     mainHandler.post(() -> {
@@ -349,8 +291,6 @@ public class RegisterActivity extends AppCompatActivity {
                         tvError.setVisibility(View.VISIBLE);
                     });
                 }
-                
-                conn.disconnect();
             } catch (Exception e) {
                 e.printStackTrace();
                 mainHandler.post(() -> {
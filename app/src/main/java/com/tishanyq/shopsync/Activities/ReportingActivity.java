@@ -1,31 +1,71 @@
 package com.tishanyq.shopsync.Activities;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.DocumentsContract;
+import android.util.Log;
 import android.view.View;
 import android.widget.*;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.google.android.material.card.MaterialCardView;
+import com.tishanyq.shopsync.Database.DataExporter;
 import com.tishanyq.shopsync.Database.DatabaseHelper;
-import com.tishanyq.shopsync.Models.Sale;
+import com.tishanyq.shopsync.Models.Money;
+import com.tishanyq.shopsync.Models.SalesSummary;
+import com.tishanyq.shopsync.Models.TopItem;
 import com.tishanyq.shopsync.R;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ReportingActivity extends AppCompatActivity {
+    private static final String TAG = "ReportingActivity";
+    private static final String STATE_EXPORT_DATASET = "export_dataset";
+    private static final String STATE_EXPORT_FORMAT = "export_format";
+    private static final String STATE_EXPORT_GZIP = "export_gzip";
+    private static final String STATE_EXPORT_START = "export_start";
+    private static final String STATE_EXPORT_END = "export_end";
     private Spinner spinnerPeriod;
     private TextView tvTotalSalesUSD, tvTotalSalesZWG, tvTransactions, tvDetails;
     private DatabaseHelper db;
-    private MaterialCardView debts;
+    private MaterialCardView debts, salesHistory, export;
+    private long reportStartDate, reportEndDate;
+    private ExecutorService executor;
+    private Handler mainHandler;
+
+    // Chosen in the export dialogs, used once the file has been created.
+    // Saved with the instance state, since the picker may outlive the activity.
+    private DataExporter.Dataset exportDataset;
+    private DataExporter.Format exportFormat;
+    private boolean exportGzip;
+    private long exportStartDate, exportEndDate;
+    private AlertDialog exportDialog;
+
+    private final ActivityResultLauncher<String> createCsv = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("text/csv"), this::exportTo);
+    private final ActivityResultLauncher<String> createJson = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/json"), this::exportTo);
+    private final ActivityResultLauncher<String> createGzip = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/gzip"), this::exportTo);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_reporting);
 
-        db = new DatabaseHelper(this);
+        db = DatabaseHelper.getInstance(this);
 
         spinnerPeriod = findViewById(R.id.spinner_period);
         tvTotalSalesUSD = findViewById(R.id.tv_total_sales_usd);
@@ -34,6 +74,19 @@ public class ReportingActivity extends AppCompatActivity {
         tvDetails = findViewById(R.id.tv_details);
 
         debts = findViewById(R.id.debts_page);
+        salesHistory = findViewById(R.id.card_sales_history);
+        export = findViewById(R.id.card_export);
+
+        executor = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
+
+        if (savedInstanceState != null && savedInstanceState.containsKey(STATE_EXPORT_DATASET)) {
+            exportDataset = DataExporter.Dataset.valueOf(savedInstanceState.getString(STATE_EXPORT_DATASET));
+            exportFormat = DataExporter.Format.valueOf(savedInstanceState.getString(STATE_EXPORT_FORMAT));
+            exportGzip = savedInstanceState.getBoolean(STATE_EXPORT_GZIP);
+            exportStartDate = savedInstanceState.getLong(STATE_EXPORT_START);
+            exportEndDate = savedInstanceState.getLong(STATE_EXPORT_END);
+        }
 
         setupPeriodSpinner();
 
@@ -41,10 +94,41 @@ public class ReportingActivity extends AppCompatActivity {
             Intent intent = new Intent(ReportingActivity.this, Debts.class);
             startActivity(intent);
         });
+
+        salesHistory.setOnClickListener(v -> {
+            Intent intent = new Intent(ReportingActivity.this, SalesHistoryActivity.class);
+            intent.putExtra(SalesHistoryActivity.EXTRA_START_DATE, reportStartDate);
+            intent.putExtra(SalesHistoryActivity.EXTRA_END_DATE, reportEndDate);
+            startActivity(intent);
+        });
+
+        export.setOnClickListener(v -> chooseExport());
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (exportDataset != null && exportFormat != null) {
+            outState.putString(STATE_EXPORT_DATASET, exportDataset.name());
+            outState.putString(STATE_EXPORT_FORMAT, exportFormat.name());
+            outState.putBoolean(STATE_EXPORT_GZIP, exportGzip);
+            outState.putLong(STATE_EXPORT_START, exportStartDate);
+            outState.putLong(STATE_EXPORT_END, exportEndDate);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // A running export is left to finish its file
+        executor.shutdown();
+        if (exportDialog != null) {
+            exportDialog.dismiss();
+        }
     }
 
     private void setupPeriodSpinner() {
-        String[] periods = {"Today", "Last 7 Days", "Last 30 Days"};
+        String[] periods = {"Today", "Last 7 Days", "Last 30 Days", "This Month", "Last Month"};
         ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
                 android.R.layout.simple_spinner_item, periods);
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
@@ -66,55 +150,155 @@ public class ReportingActivity extends AppCompatActivity {
     private void loadReport(int periodType) {
         Calendar calendar = Calendar.getInstance();
         long endDate = calendar.getTimeInMillis();
-        long startDate;
+
+        // Periods cover whole days so totals can come from the day rollups
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
 
         switch (periodType) {
-            case 0: // Today
-                calendar.set(Calendar.HOUR_OF_DAY, 0);
-                calendar.set(Calendar.MINUTE, 0);
-                calendar.set(Calendar.SECOND, 0);
-                startDate = calendar.getTimeInMillis();
-                break;
             case 1: // Last 7 days
                 calendar.add(Calendar.DAY_OF_YEAR, -7);
-                startDate = calendar.getTimeInMillis();
                 break;
             case 2: // Last 30 days
                 calendar.add(Calendar.DAY_OF_YEAR, -30);
-                startDate = calendar.getTimeInMillis();
                 break;
-            default:
-                startDate = 0;
+            case 3: // This month
+                calendar.set(Calendar.DAY_OF_MONTH, 1);
+                break;
+            case 4: // Last month, up to the end of its last day
+                calendar.set(Calendar.DAY_OF_MONTH, 1);
+                endDate = calendar.getTimeInMillis() - 1;
+                calendar.add(Calendar.MONTH, -1);
+                break;
+            default: // Today
+                break;
         }
+        long startDate = calendar.getTimeInMillis();
 
-        List<Sale> sales = db.getSalesByDateRange(startDate, endDate);
-        displayReport(sales);
+        reportStartDate = startDate;
+        reportEndDate = endDate;
+        SalesSummary summary = db.getSalesRollup(startDate, endDate);
+        List<TopItem> topItems = db.getTopSellingItems(startDate, endDate, 10);
+        displayReport(summary, topItems);
     }
 
-    private void displayReport(List<Sale> sales) {
-        double totalUSD = 0;
-        double totalZWG = 0;
-        Map<String, Integer> itemCount = new HashMap<>();
+    private void displayReport(SalesSummary summary, List<TopItem> topItems) {
+        tvTotalSalesUSD.setText("$" + Money.format(summary.getTotalUSDCents()));
+        tvTotalSalesZWG.setText("ZWG " + Money.format(summary.getTotalZWGCents()));
+        tvTransactions.setText(String.valueOf(summary.getTransactions()));
+
+        StringBuilder details = new StringBuilder("Top Items:\n\n");
+        for (TopItem item : topItems) {
+            details.append(item.getItemName())
+                    .append(": ").append(item.getQuantitySold()).append(" sold\n");
+        }
+
+        tvDetails.setText(details.toString());
+    }
 
-        for (Sale sale : sales) {
-            totalUSD += sale.getTotalUSD();
-            totalZWG += sale.getTotalZWG();
+    // Sales and debts are exported for the selected period, the catalog whole
+    private void chooseExport() {
+        String[] datasets = {"Sales", "Debts", "Item Catalog"};
+        new AlertDialog.Builder(this)
+                .setTitle("Export")
+                .setItems(datasets, (dialog, which) -> {
+                    exportDataset = DataExporter.Dataset.values()[which];
+                    chooseExportFormat();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
 
-            String itemName = sale.getItemName();
-            itemCount.put(itemName, itemCount.getOrDefault(itemName, 0) + sale.getQuantity());
+    private void chooseExportFormat() {
+        String[] formats = {"CSV", "CSV (gzip)", "JSON", "JSON (gzip)"};
+        new AlertDialog.Builder(this)
+                .setTitle("Format")
+                .setItems(formats, (dialog, which) -> {
+                    exportFormat = which < 2 ? DataExporter.Format.CSV : DataExporter.Format.JSON;
+                    exportGzip = which % 2 == 1;
+                    exportStartDate = reportStartDate;
+                    exportEndDate = reportEndDate;
+
+                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+                    String name = exportDataset.name().toLowerCase(Locale.US);
+                    if (exportDataset != DataExporter.Dataset.ITEMS) {
+                        name += "_" + sdf.format(new Date(exportStartDate)) +
+                                "_" + sdf.format(new Date(exportEndDate));
+                    }
+                    name += exportFormat == DataExporter.Format.CSV ? ".csv" : ".json";
+                    if (exportGzip) {
+                        createGzip.launch(name + ".gz");
+                    } else if (exportFormat == DataExporter.Format.CSV) {
+                        createCsv.launch(name);
+                    } else {
+                        createJson.launch(name);
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void exportTo(Uri uri) {
+        if (uri == null || exportDataset == null || exportFormat == null) {
+            return;
         }
+        DataExporter exporter = new DataExporter(db);
+        DataExporter.Dataset dataset = exportDataset;
+        DataExporter.Format format = exportFormat;
+        boolean gzip = exportGzip;
+        long startDate = exportStartDate, endDate = exportEndDate;
 
-        tvTotalSalesUSD.setText(String.format("$%.2f", totalUSD));
-        tvTotalSalesZWG.setText(String.format("ZWG %.2f", totalZWG));
-        tvTransactions.setText(String.valueOf(sales.size()));
+        exportDialog = new AlertDialog.Builder(this)
+                .setTitle("Exporting")
+                .setMessage("Starting...")
+                .setCancelable(false)
+                .setNegativeButton("Cancel", (dialog, which) -> exporter.cancel())
+                .show();
 
-        StringBuilder details = new StringBuilder("Top Items:\n\n");
-        itemCount.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(10)
-                .forEach(entry -> details.append(entry.getKey())
-                        .append(": ").append(entry.getValue()).append(" sold\n"));
+        executor.execute(() -> {
+            String message;
+            try (OutputStream out = getContentResolver().openOutputStream(uri)) {
+                if (out == null) {
+                    throw new IOException("Could not open the file");
+                }
+                int rows = exporter.export(dataset, format, startDate, endDate, gzip, out,
+                        written -> mainHandler.post(() -> {
+                            if (!isDestroyed()) {
+                                exportDialog.setMessage(written + " rows written");
+                            }
+                        }));
+                message = "Exported " + rows + " rows";
+            } catch (CancellationException e) {
+                deleteQuietly(uri);
+                message = "Export cancelled";
+            } catch (IOException e) {
+                deleteQuietly(uri);
+                message = "Export failed: " + e.getMessage();
+            } catch (RuntimeException e) {
+                // e.g. SQLiteException from a page query or SecurityException
+                // from the document provider
+                Log.e(TAG, "Export failed", e);
+                deleteQuietly(uri);
+                message = "Export failed: " + e.getMessage();
+            }
+            String result = message;
+            mainHandler.post(() -> {
+                if (!isDestroyed()) {
+                    exportDialog.dismiss();
+                    Toast.makeText(this, result, Toast.LENGTH_LONG).show();
+                }
+            });
+        });
+    }
 
-        tvDetails.setText(details.toString());
+    // Drops a partly written export so it isn't mistaken for a full one
+    private void deleteQuietly(Uri uri) {
+        try {
+            DocumentsContract.deleteDocument(getContentResolver(), uri);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not delete partial export", e);
+        }
     }
-}
\ No newline at end of file
+}
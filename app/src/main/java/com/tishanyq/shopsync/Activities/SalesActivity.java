@@ -10,9 +10,12 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.tishanyq.shopsync.Database.DatabaseHelper;
+import com.tishanyq.shopsync.Models.Cart;
+import com.tishanyq.shopsync.Models.CheckoutResult;
 import com.tishanyq.shopsync.Models.Debt;
 import com.tishanyq.shopsync.Models.Item;
-import com.tishanyq.shopsync.Models.Sale;
+import com.tishanyq.shopsync.Models.Money;
+import com.tishanyq.shopsync.Models.Payment;
 import com.google.android.material.textfield.TextInputEditText;
 import com.tishanyq.shopsync.R;
 
@@ -26,15 +29,16 @@ public class SalesActivity extends AppCompatActivity {
     private DatabaseHelper db;
     private SalesAdapter adapter;
     private List<Item> allItems;
-    private Map<String, Integer> cart = new HashMap<>();
-    private double totalUSD = 0, totalZWG = 0;
+    private final Cart cart = new Cart();
+
+    private static final int SEARCH_LIMIT = 200;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_sales);
 
-        db = new DatabaseHelper(this);
+        db = DatabaseHelper.getInstance(this);
 
         etSearch = findViewById(R.id.et_search);
         recyclerView = findViewById(R.id.recycler_view);
@@ -56,11 +60,7 @@ public class SalesActivity extends AppCompatActivity {
     }
 
     private void loadAllItems() {
-        allItems = new ArrayList<>();
-        List<String> categories = db.getAllCategories();
-        for (String category : categories) {
-            allItems.addAll(db.getItemsByCategory(category));
-        }
+        allItems = db.getAllItems(DatabaseHelper.ORDER_BY_CATEGORY_NAME);
         adapter.setItems(allItems);
     }
 
@@ -80,21 +80,15 @@ public class SalesActivity extends AppCompatActivity {
     }
 
     private void filterItems(String query) {
-        List<Item> filtered = new ArrayList<>();
-        for (Item item : allItems) {
-            if (item.getName().toLowerCase().contains(query.toLowerCase())) {
-                filtered.add(item);
-            }
+        if (query.trim().isEmpty()) {
+            adapter.setItems(allItems);
+        } else {
+            adapter.setItems(db.searchItems(query, SEARCH_LIMIT));
         }
-        adapter.setItems(filtered);
     }
 
     private void addToCart(Item item) {
-        String itemId = item.getLocalId();
-        int currentQty = cart.getOrDefault(itemId, 0);
-
-        if (currentQty < item.getQuantity()) {
-            cart.put(itemId, currentQty + 1);
+        if (cart.add(item)) {
             updateTotal();
             Toast.makeText(this, "Added to cart", Toast.LENGTH_SHORT).show();
         } else {
@@ -103,22 +97,9 @@ public class SalesActivity extends AppCompatActivity {
     }
 
     private void updateTotal() {
-        totalUSD = 0;
-        totalZWG = 0;
-        int itemCount = 0;
-
-        for (Map.Entry<String, Integer> entry : cart.entrySet()) {
-            Item item = db.getItemByLocalId(entry.getKey());
-            if (item != null) {
-                int qty = entry.getValue();
-                totalUSD += item.getPriceUSD() * qty;
-                totalZWG += item.getPriceZWG() * qty;
-                itemCount += qty;
-            }
-        }
-
-        tvTotal.setText(String.format("Total: $%.2f / ZWG %.2f", totalUSD, totalZWG));
-        tvCart.setText("Cart: " + itemCount + " items");
+        tvTotal.setText("Total: $" + Money.format(cart.getTotalUSDCents()) +
+                " / ZWG " + Money.format(cart.getTotalZWGCents()));
+        tvCart.setText("Cart: " + cart.getItemCount() + " items");
     }
 
     private void showCheckoutOptions() {
@@ -132,7 +113,8 @@ public class SalesActivity extends AppCompatActivity {
 
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Complete Sale");
-        builder.setMessage(String.format("Total: $%.2f / ZWG %.2f\n\nChoose payment option:", totalUSD, totalZWG));
+        builder.setMessage("Total: $" + Money.format(cart.getTotalUSDCents()) +
+                " / ZWG " + Money.format(cart.getTotalZWGCents()) + "\n\nChoose payment option:");
 
         // Option 1: Use customer debt
         if (!activeDebts.isEmpty()) {
@@ -152,7 +134,8 @@ public class SalesActivity extends AppCompatActivity {
         String[] debtOptions = new String[debts.size()];
         for (int i = 0; i < debts.size(); i++) {
             Debt debt = debts.get(i);
-            debtOptions[i] = debt.getCustomerName() + " - $" + debt.getAmountUSD() + " / ZWG " + debt.getAmountZWG();
+            debtOptions[i] = debt.getCustomerName() + " - $" + Money.format(debt.getBalanceUSDCents()) +
+                    " / ZWG " + Money.format(debt.getBalanceZWGCents());
         }
 
         new AlertDialog.Builder(this)
@@ -166,40 +149,38 @@ public class SalesActivity extends AppCompatActivity {
     }
 
     private void applyDebtToSale(Debt debt) {
-        double debtUsedUSD = Math.min(debt.getAmountUSD(), totalUSD);
-        double debtUsedZWG = Math.min(debt.getAmountZWG(), totalZWG);
+        long totalUSD = cart.getTotalUSDCents();
+        long totalZWG = cart.getTotalZWGCents();
+        long debtUsedUSD = Math.min(debt.getBalanceUSDCents(), totalUSD);
+        long debtUsedZWG = Math.min(debt.getBalanceZWGCents(), totalZWG);
 
-        double remainingUSD = totalUSD - debtUsedUSD;
-        double remainingZWG = totalZWG - debtUsedZWG;
+        long remainingUSD = totalUSD - debtUsedUSD;
+        long remainingZWG = totalZWG - debtUsedZWG;
 
-        String message = String.format(
-                "Debt Applied:\n$%.2f / ZWG %.2f\n\nRemaining to pay:\n$%.2f / ZWG %.2f",
-                debtUsedUSD, debtUsedZWG, remainingUSD, remainingZWG);
+        String message = "Debt Applied:\n$" + Money.format(debtUsedUSD) + " / ZWG " + Money.format(debtUsedZWG) +
+                "\n\nRemaining to pay:\n$" + Money.format(remainingUSD) + " / ZWG " + Money.format(remainingZWG);
 
         new AlertDialog.Builder(this)
                 .setTitle("Confirm Sale with Debt")
                 .setMessage(message)
-                .setPositiveButton("Confirm", (dialog, which) -> {
-                    processSaleWithDebt(debt.getLocalId(), debtUsedUSD, debtUsedZWG);
-
-                    // Clear or update debt
-                    if (debtUsedUSD >= debt.getAmountUSD() && debtUsedZWG >= debt.getAmountZWG()) {
-                        db.clearDebt(debt.getLocalId());
-                    }
-                })
+                .setPositiveButton("Confirm", (dialog, which) ->
+                        // The ledger draws the debt down and clears it once fully used
+                        completeSale(null, Payment.debt(debt.getLocalId(), debtUsedUSD, debtUsedZWG)))
                 .setNegativeButton("Cancel", null)
                 .show();
     }
 
     private void handleCashPayment() {
+        long totalUSD = cart.getTotalUSDCents();
+        long totalZWG = cart.getTotalZWGCents();
         View dialogView = LayoutInflater.from(this).inflate(R.layout.dialog_cash_payment, null);
         EditText etPaidUSD = dialogView.findViewById(R.id.et_paid_usd);
         EditText etPaidZWG = dialogView.findViewById(R.id.et_paid_zwg);
         TextView tvChangeUSD = dialogView.findViewById(R.id.tv_change_usd);
         TextView tvChangeZWG = dialogView.findViewById(R.id.tv_change_zwg);
 
-        etPaidUSD.setText(String.valueOf(totalUSD));
-        etPaidZWG.setText(String.valueOf(totalZWG));
+        etPaidUSD.setText(Money.format(totalUSD));
+        etPaidZWG.setText(Money.format(totalZWG));
 
         TextWatcher changeCalculator = new TextWatcher() {
             @Override
@@ -208,12 +189,10 @@ public class SalesActivity extends AppCompatActivity {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 try {
-                    double paidUSD = Double.parseDouble(etPaidUSD.getText().toString());
-                    double paidZWG = Double.parseDouble(etPaidZWG.getText().toString());
-                    double changeUSD = paidUSD - totalUSD;
-                    double changeZWG = paidZWG - totalZWG;
-                    tvChangeUSD.setText(String.format("Change: $%.2f", changeUSD));
-                    tvChangeZWG.setText(String.format("Change: ZWG %.2f", changeZWG));
+                    long changeUSD = Money.parseCents(etPaidUSD.getText().toString()) - totalUSD;
+                    long changeZWG = Money.parseCents(etPaidZWG.getText().toString()) - totalZWG;
+                    tvChangeUSD.setText("Change: $" + Money.format(changeUSD));
+                    tvChangeZWG.setText("Change: ZWG " + Money.format(changeZWG));
                 } catch (NumberFormatException e) {
                     tvChangeUSD.setText("Change: $0.00");
                     tvChangeZWG.setText("Change: ZWG 0.00");
@@ -232,15 +211,13 @@ public class SalesActivity extends AppCompatActivity {
                 .setView(dialogView)
                 .setPositiveButton("Complete", (dialog, which) -> {
                     try {
-                        double paidUSD = Double.parseDouble(etPaidUSD.getText().toString());
-                        double paidZWG = Double.parseDouble(etPaidZWG.getText().toString());
-                        double changeUSD = paidUSD - totalUSD;
-                        double changeZWG = paidZWG - totalZWG;
+                        long changeUSD = Money.parseCents(etPaidUSD.getText().toString()) - totalUSD;
+                        long changeZWG = Money.parseCents(etPaidZWG.getText().toString()) - totalZWG;
 
                         if (changeUSD > 0 || changeZWG > 0) {
                             askToSaveAsDebt(changeUSD, changeZWG);
                         } else {
-                            processSale();
+                            completeSale(null, Payment.cash());
                         }
                     } catch (NumberFormatException e) {
                         Toast.makeText(this, "Invalid amount", Toast.LENGTH_SHORT).show();
@@ -250,12 +227,12 @@ public class SalesActivity extends AppCompatActivity {
                 .show();
     }
 
-    private void askToSaveAsDebt(double changeUSD, double changeZWG) {
+    private void askToSaveAsDebt(long changeUSD, long changeZWG) {
         View dialogView = LayoutInflater.from(this).inflate(R.layout.dialog_save_debt, null);
         EditText etCustomerName = dialogView.findViewById(R.id.et_customer_name);
         TextView tvChangeAmount = dialogView.findViewById(R.id.tv_change_amount);
 
-        tvChangeAmount.setText(String.format("Change: $%.2f / ZWG %.2f", changeUSD, changeZWG));
+        tvChangeAmount.setText("Change: $" + Money.format(changeUSD) + " / ZWG " + Money.format(changeZWG));
 
         new AlertDialog.Builder(this)
                 .setTitle("No Change Available")
@@ -270,42 +247,27 @@ public class SalesActivity extends AppCompatActivity {
 
                     Debt debt = new Debt(customerName, changeUSD, changeZWG, "CHANGE_OWED",
                             "Change from sale on " + new Date());
-                    db.addDebt(debt);
-
-                    processSale();
-                    Toast.makeText(this, "Debt saved for " + customerName, Toast.LENGTH_LONG).show();
+                    if (completeSale(debt, Payment.cash())) {
+                        Toast.makeText(this, "Debt saved for " + customerName, Toast.LENGTH_LONG).show();
+                    }
                 })
                 .setNegativeButton("Cancel Sale", null)
                 .show();
     }
 
-    private void processSale() {
-        processSaleWithDebt(null, 0, 0);
-    }
-
-    private void processSaleWithDebt(String debtId, double debtUsedUSD, double debtUsedZWG) {
-        for (Map.Entry<String, Integer> entry : cart.entrySet()) {
-            String itemId = entry.getKey();
-            int qty = entry.getValue();
-            Item item = db.getItemByLocalId(itemId);
-
-            if (item != null) {
-                Sale sale = new Sale(item.getLocalId(), item.getName(), qty,
-                        item.getPriceUSD() * qty, item.getPriceZWG() * qty);
-                sale.setDebtUsedUSD(debtUsedUSD);
-                sale.setDebtUsedZWG(debtUsedZWG);
-                sale.setDebtId(debtId);
-                db.addSale(sale);
-
-                // Update inventory
-                db.updateItemQuantity(itemId, item.getQuantity() - qty);
-            }
+    private boolean completeSale(Debt changeDebt, Payment payment) {
+        CheckoutResult result = db.commitCheckout(cart.getQuantities(), changeDebt, payment);
+        if (!result.isSuccess()) {
+            Toast.makeText(this, "Sale failed: " + result.getError(), Toast.LENGTH_LONG).show();
+            loadAllItems();
+            return false;
         }
 
         Toast.makeText(this, "Sale completed!", Toast.LENGTH_SHORT).show();
         cart.clear();
         updateTotal();
         loadAllItems();
+        return true;
     }
 
     private class SalesAdapter extends RecyclerView.Adapter<SalesAdapter.SalesViewHolder> {
@@ -327,7 +289,8 @@ public class SalesActivity extends AppCompatActivity {
         public void onBindViewHolder(SalesViewHolder holder, int position) {
             Item item = items.get(position);
             holder.tvName.setText(item.getName());
-            holder.tvPrice.setText("$" + item.getPriceUSD() + " / ZWG " + item.getPriceZWG());
+            holder.tvPrice.setText("$" + Money.format(item.getPriceUSDCents()) +
+                    " / ZWG " + Money.format(item.getPriceZWGCents()));
             holder.tvStock.setText("Stock: " + item.getQuantity());
 
             holder.btnAdd.setOnClickListener(v -> addToCart(item));
@@ -0,0 +1,251 @@
+package com.tishanyq.shopsync.Activities;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.tishanyq.shopsync.Database.DatabaseHelper;
+import com.tishanyq.shopsync.Models.Money;
+import com.tishanyq.shopsync.Models.Sale;
+import com.tishanyq.shopsync.Models.SalesSummary;
+import com.tishanyq.shopsync.R;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SalesHistoryActivity extends AppCompatActivity {
+    public static final String EXTRA_START_DATE = "start_date";
+    public static final String EXTRA_END_DATE = "end_date";
+
+    private static final int PAGE_SIZE = 50;
+    // Start fetching the next page when this many rows are left below (or
+    // above) the fold
+    private static final int PREFETCH_DISTANCE = 15;
+    // Pages kept in the adapter; those furthest from the viewport are dropped
+    // and fetched again by key if the user scrolls back to them
+    private static final int MAX_PAGES = 6;
+
+    private RecyclerView recyclerView;
+    private TextView tvRange, tvEmpty;
+    private ProgressBar progressLoading;
+    private DatabaseHelper db;
+    private HistoryAdapter adapter;
+    private ExecutorService executor;
+    private Handler mainHandler;
+
+    private long startDate, endDate;
+    private boolean loading = false;
+    private boolean hasMore = true;
+    private boolean hasNewer = false;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_sales_history);
+
+        db = DatabaseHelper.getInstance(this);
+        executor = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
+
+        endDate = getIntent().getLongExtra(EXTRA_END_DATE, System.currentTimeMillis());
+        startDate = getIntent().getLongExtra(EXTRA_START_DATE, 0);
+
+        tvRange = findViewById(R.id.tv_range);
+        tvEmpty = findViewById(R.id.tv_empty);
+        recyclerView = findViewById(R.id.recycler_view);
+        progressLoading = findViewById(R.id.progress_loading);
+
+        setupRecyclerView();
+        loadRangeSummary();
+        loadNextPage();
+    }
+
+    private void loadRangeSummary() {
+        SimpleDateFormat rangeFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+        String range = rangeFormat.format(new Date(startDate)) + " - " + rangeFormat.format(new Date(endDate));
+        tvRange.setText(range);
+
+        executor.execute(() -> {
+            SalesSummary summary = db.getSalesSummary(startDate, endDate);
+            mainHandler.post(() -> tvRange.setText(String.format(Locale.getDefault(),
+                    "%s\n%d sales · $%s / ZWG %s", range, summary.getTransactions(),
+                    Money.format(summary.getTotalUSDCents()), Money.format(summary.getTotalZWGCents()))));
+        });
+    }
+
+    private void setupRecyclerView() {
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+        adapter = new HistoryAdapter();
+        recyclerView.setAdapter(adapter);
+
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView rv, int dx, int dy) {
+                if (dy > 0) {
+                    int lastVisible = layoutManager.findLastVisibleItemPosition();
+                    if (lastVisible >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                        loadNextPage();
+                    }
+                } else if (dy < 0) {
+                    int firstVisible = layoutManager.findFirstVisibleItemPosition();
+                    if (firstVisible != RecyclerView.NO_POSITION && firstVisible <= PREFETCH_DISTANCE) {
+                        loadPreviousPage();
+                    }
+                }
+            }
+        });
+    }
+
+    private void loadNextPage() {
+        if (loading || !hasMore) return;
+        loading = true;
+        progressLoading.setVisibility(View.VISIBLE);
+
+        Sale after = adapter.getLast();
+        executor.execute(() -> {
+            List<Sale> page = db.getSalesPage(startDate, endDate, after, PAGE_SIZE);
+            mainHandler.post(() -> {
+                loading = false;
+                progressLoading.setVisibility(View.GONE);
+                if (isFinishing() || isDestroyed()) return;
+
+                hasMore = page.size() == PAGE_SIZE;
+                if (!page.isEmpty()) {
+                    adapter.append(page);
+                    if (adapter.getPageCount() > MAX_PAGES) {
+                        adapter.dropFirstPage();
+                        hasNewer = true;
+                    }
+                }
+                tvEmpty.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+            });
+        });
+    }
+
+    // Refetches the page above the first one kept, after it was dropped
+    private void loadPreviousPage() {
+        if (loading || !hasNewer) return;
+        loading = true;
+
+        Sale before = adapter.getFirst();
+        executor.execute(() -> {
+            List<Sale> page = db.getSalesPageBefore(startDate, endDate, before, PAGE_SIZE);
+            mainHandler.post(() -> {
+                loading = false;
+                if (isFinishing() || isDestroyed()) return;
+
+                hasNewer = page.size() == PAGE_SIZE;
+                if (!page.isEmpty()) {
+                    adapter.prepend(page);
+                    if (adapter.getPageCount() > MAX_PAGES) {
+                        adapter.dropLastPage();
+                        hasMore = true;
+                    }
+                }
+            });
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryViewHolder> {
+        private final List<Sale> sales = new ArrayList<>();
+        private final ArrayDeque<Integer> pageSizes = new ArrayDeque<>();
+
+        void append(List<Sale> page) {
+            int start = sales.size();
+            sales.addAll(page);
+            pageSizes.addLast(page.size());
+            notifyItemRangeInserted(start, page.size());
+        }
+
+        void prepend(List<Sale> page) {
+            sales.addAll(0, page);
+            pageSizes.addFirst(page.size());
+            notifyItemRangeInserted(0, page.size());
+        }
+
+        void dropFirstPage() {
+            int size = pageSizes.removeFirst();
+            sales.subList(0, size).clear();
+            notifyItemRangeRemoved(0, size);
+        }
+
+        void dropLastPage() {
+            int size = pageSizes.removeLast();
+            int start = sales.size() - size;
+            sales.subList(start, sales.size()).clear();
+            notifyItemRangeRemoved(start, size);
+        }
+
+        int getPageCount() {
+            return pageSizes.size();
+        }
+
+        // Keys for the next page either way; null while nothing is loaded
+        Sale getFirst() {
+            return sales.isEmpty() ? null : sales.get(0);
+        }
+
+        Sale getLast() {
+            return sales.isEmpty() ? null : sales.get(sales.size() - 1);
+        }
+
+        @Override
+        public HistoryViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_sale_history, parent, false);
+            return new HistoryViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(HistoryViewHolder holder, int position) {
+            Sale sale = sales.get(position);
+            holder.tvName.setText(sale.getItemName());
+            holder.tvDate.setText(dateFormat.format(new Date(sale.getSaleDate())));
+            holder.tvTotal.setText("$" + Money.format(sale.getTotalUSDCents()) +
+                    " / ZWG " + Money.format(sale.getTotalZWGCents()));
+            holder.tvQuantity.setText("Qty: " + sale.getQuantity());
+        }
+
+        @Override
+        public int getItemCount() {
+            return sales.size();
+        }
+
+        class HistoryViewHolder extends RecyclerView.ViewHolder {
+            TextView tvName, tvDate, tvTotal, tvQuantity;
+
+            HistoryViewHolder(View itemView) {
+                super(itemView);
+                tvName = itemView.findViewById(R.id.tv_name);
+                tvDate = itemView.findViewById(R.id.tv_date);
+                tvTotal = itemView.findViewById(R.id.tv_total);
+                tvQuantity = itemView.findViewById(R.id.tv_quantity);
+            }
+        }
+    }
+}
@@ -33,13 +33,14 @@ public class SettingsActivity extends AppCompatActivity {
 
     private DatabaseHelper db;
     private SyncManager syncManager;
+    private boolean syncing;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_settings);
 
-        db = new DatabaseHelper(this);
+        db = DatabaseHelper.getInstance(this);
         syncManager = new SyncManager(this, db);
 
         initViews();
@@ -61,7 +62,13 @@ public class SettingsActivity extends AppCompatActivity {
     private void setupListeners() {
         btnBack.setOnClickListener(v -> finish());
 
-        btnSyncNow.setOnClickListener(v -> performSync());
+        btnSyncNow.setOnClickListener(v -> {
+            if (syncing) {
+                cancelSync();
+            } else {
+                performSync();
+            }
+        });
 
         cardAppInfo.setOnClickListener(v -> {
             Intent intent = new Intent(SettingsActivity.this, AppInfoActivity.class);
@@ -112,17 +119,16 @@ public class SettingsActivity extends AppCompatActivity {
             return;
         }
 
-        btnSyncNow.setEnabled(false);
-        btnSyncNow.setText("Syncing...");
+        // Joins the background sync if one is already running
+        syncing = true;
+        btnSyncNow.setText("Cancel Sync");
         progressSync.setVisibility(View.VISIBLE);
 
         syncManager.syncData(new SyncManager.SyncCallback() {
             @Override
             public void onSuccess(String message) {
                 runOnUiThread(() -> {
-                    btnSyncNow.setEnabled(true);
-                    btnSyncNow.setText("Start Sync");
-                    progressSync.setVisibility(View.GONE);
+                    resetSyncButton();
                     Toast.makeText(SettingsActivity.this, "Sync completed successfully!", Toast.LENGTH_SHORT).show();
                     loadSyncStatus();
                 });
@@ -131,9 +137,7 @@ public class SettingsActivity extends AppCompatActivity {
             @Override
             public void onError(String error) {
                 runOnUiThread(() -> {
-                    btnSyncNow.setEnabled(true);
-                    btnSyncNow.setText("Start Sync");
-                    progressSync.setVisibility(View.GONE);
+                    resetSyncButton();
                     Toast.makeText(SettingsActivity.this, "Sync failed: " + error, Toast.LENGTH_SHORT).show();
                 });
             }
@@ -141,15 +145,35 @@ public class SettingsActivity extends AppCompatActivity {
             @Override
             public void onLicenseExpired() {
                 runOnUiThread(() -> {
-                    btnSyncNow.setEnabled(true);
-                    btnSyncNow.setText("Start Sync");
-                    progressSync.setVisibility(View.GONE);
+                    resetSyncButton();
                     Toast.makeText(SettingsActivity.this, "License expired. Please renew to sync.", Toast.LENGTH_LONG).show();
                 });
             }
+
+            @Override
+            public void onCancelled() {
+                runOnUiThread(() -> {
+                    resetSyncButton();
+                    Toast.makeText(SettingsActivity.this, "Sync cancelled", Toast.LENGTH_SHORT).show();
+                });
+            }
         });
     }
 
+    // Stops before the next batch; what was already sent stays synced
+    private void cancelSync() {
+        SyncManager.cancelSync();
+        btnSyncNow.setEnabled(false);
+        btnSyncNow.setText("Cancelling...");
+    }
+
+    private void resetSyncButton() {
+        syncing = false;
+        btnSyncNow.setEnabled(true);
+        btnSyncNow.setText("Start Sync");
+        progressSync.setVisibility(View.GONE);
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -26,7 +26,7 @@ public class SetupPinActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_setup_pin);
 
-        db = new DatabaseHelper(this);
+        db = DatabaseHelper.getInstance(this);
 
         etPin1 = findViewById(R.id.et_pin_1);
         etPin2 = findViewById(R.id.et_pin_2);
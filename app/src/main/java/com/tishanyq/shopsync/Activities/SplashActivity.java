@@ -34,7 +34,7 @@ public class SplashActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
         
-        db = new DatabaseHelper(this);
+        db = DatabaseHelper.getInstance(this);
         
         new Handler().postDelayed(this::checkAppState, 2000);
     }
@@ -85,7 +85,7 @@ public class SplashActivity extends AppCompatActivity {
         
         new Thread(() -> {
             try {
-                SyncManager syncManager = new SyncManager(this);
+                SyncManager syncManager = new SyncManager(this, db);
                 String response = syncManager.validateProductKey(shop.getId(), productKey);
                 
                 runOnUiThread(() -> {
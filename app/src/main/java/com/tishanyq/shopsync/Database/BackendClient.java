@@ -0,0 +1,128 @@
+package com.tishanyq.shopsync.Database;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The one way the app talks to the backend. Every call goes through the same
+ * HttpURLConnection pool with explicit timeouts, and every response body is
+ * read to the end and closed, which hands the connection back to the pool.
+ * A license check followed by a sync then reuses one kept-alive TLS
+ * connection, and the default SSL socket factory's session cache lets any
+ * new connection resume the TLS session instead of a full handshake.
+ */
+public class BackendClient {
+    public static final String BACKEND_URL = "https://shopsync-qx6o.onrender.com"; //"http://192.168.1.13:5000";
+
+    private static final int CONNECT_TIMEOUT_MS = 15_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+
+    private static BackendClient instance;
+
+    private final String baseUrl;
+
+    public static synchronized BackendClient getInstance() {
+        if (instance == null) {
+            instance = new BackendClient(BACKEND_URL);
+        }
+        return instance;
+    }
+
+    BackendClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static class Response {
+        private final int code;
+        private final String body;
+
+        Response(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+
+        public int getCode() { return code; }
+        public String getBody() { return body; }
+        public boolean isSuccessful() { return code >= 200 && code < 300; }
+    }
+
+    public boolean isConfigured() {
+        return !baseUrl.isEmpty();
+    }
+
+    public Response get(String path, String appId) throws IOException {
+        HttpURLConnection conn = open("GET", path, appId);
+        return execute(conn);
+    }
+
+    public Response post(String path, String appId, JSONObject body) throws IOException {
+        HttpURLConnection conn = open("POST", path, appId);
+        byte[] bytes = body.toString().getBytes("UTF-8");
+        conn.setDoOutput(true);
+        conn.setFixedLengthStreamingMode(bytes.length);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(bytes);
+        } catch (IOException e) {
+            conn.disconnect();
+            throw e;
+        }
+        return execute(conn);
+    }
+
+    // A configured request for callers that stream their own body
+    HttpURLConnection open(String method, String path, String appId) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        conn.setReadTimeout(READ_TIMEOUT_MS);
+        conn.setRequestProperty("Content-Type", "application/json");
+        // Set explicitly, so the body arrives compressed and decode() inflates it
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        if (appId != null) {
+            conn.setRequestProperty("X-App-Id", appId);
+        }
+        return conn;
+    }
+
+    private Response execute(HttpURLConnection conn) throws IOException {
+        try {
+            int code = conn.getResponseCode();
+            return new Response(code, readFully(decode(conn, bodyStream(conn, code))));
+        } catch (IOException e) {
+            conn.disconnect();
+            throw e;
+        }
+    }
+
+    // The response body as sent: the error stream for 4xx/5xx codes
+    static InputStream bodyStream(HttpURLConnection conn, int code) throws IOException {
+        InputStream stream = code < 400 ? conn.getInputStream() : conn.getErrorStream();
+        return stream != null ? stream : new ByteArrayInputStream(new byte[0]);
+    }
+
+    static InputStream decode(HttpURLConnection conn, InputStream stream) throws IOException {
+        return "gzip".equalsIgnoreCase(conn.getContentEncoding()) ? new GZIPInputStream(stream) : stream;
+    }
+
+    // Reads to the end and closes, so the connection can be reused
+    static String readFully(InputStream stream) throws IOException {
+        StringBuilder body = new StringBuilder();
+        try (Reader reader = new InputStreamReader(stream, "UTF-8")) {
+            char[] buffer = new char[4096];
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                body.append(buffer, 0, n);
+            }
+        }
+        return body.toString();
+    }
+}
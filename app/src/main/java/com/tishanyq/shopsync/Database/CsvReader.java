@@ -0,0 +1,116 @@
+package com.tishanyq.shopsync.Database;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma or tab separated records one at a time, RFC 4180 style:
+ * fields may be quoted, with "" for a quote and line breaks allowed inside
+ * quotes. Lines may end in \n or \r\n. Only the current record is held in
+ * memory, so files of any length stream through.
+ */
+class CsvReader {
+    private final Reader reader;
+    private final char delimiter;
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> record = new ArrayList<>();
+    private int line = 1;
+    private int recordLine;
+    private int pending = -2; // one character of look-ahead; -2 when empty
+
+    CsvReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    // Tab if the header line has one, otherwise comma
+    static char detectDelimiter(String headerLine) {
+        return headerLine != null && headerLine.indexOf('\t') >= 0 ? '\t' : ',';
+    }
+
+    // The next record's fields, or null at the end of input. Blank lines are skipped.
+    String[] readRecord() throws IOException {
+        record.clear();
+        field.setLength(0);
+        int c = read();
+        while (c == '\n' || c == '\r') {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unclosed quote in record starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == delimiter) {
+                endField();
+                wasQuoted = false;
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                endField();
+                return record.toArray(new String[0]);
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    // Line the last record started on, counting from 1
+    int getRecordLine() {
+        return recordLine;
+    }
+
+    private void endField() {
+        record.add(field.toString());
+        field.setLength(0);
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pending != -2) {
+            c = pending;
+            pending = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private void unread(int c) {
+        if (c == '\n') {
+            line--;
+        }
+        pending = c;
+    }
+}
@@ -0,0 +1,69 @@
+package com.tishanyq.shopsync.Database;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes RFC 4180 records, the counterpart of CsvReader: a field holding the
+ * delimiter, a quote or a line break is quoted with "" for each quote, and
+ * records end in \r\n. Null fields are written empty.
+ */
+class CsvWriter {
+    private final Writer writer;
+    private final char delimiter;
+    private boolean startOfRecord = true;
+
+    CsvWriter(Writer writer, char delimiter) {
+        this.writer = writer;
+        this.delimiter = delimiter;
+    }
+
+    void writeField(String value) throws IOException {
+        if (!startOfRecord) {
+            writer.write(delimiter);
+        }
+        startOfRecord = false;
+        if (value == null) {
+            return;
+        }
+        if (!needsQuotes(value)) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    void writeField(long value) throws IOException {
+        writeField(Long.toString(value));
+    }
+
+    void writeRecord(String... fields) throws IOException {
+        for (String field : fields) {
+            writeField(field);
+        }
+        endRecord();
+    }
+
+    void endRecord() throws IOException {
+        writer.write("\r\n");
+        startOfRecord = true;
+    }
+
+    private boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,280 @@
+package com.tishanyq.shopsync.Database;
+
+import android.database.Cursor;
+import android.util.JsonWriter;
+
+import com.tishanyq.shopsync.Models.Debt;
+import com.tishanyq.shopsync.Models.Item;
+import com.tishanyq.shopsync.Models.Money;
+import com.tishanyq.shopsync.Models.Sale;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes sales, debts or the item catalog to an OutputStream as CSV or JSON,
+ * optionally gzipped, for extracts that don't depend on the backend. Rows
+ * are read from DatabaseHelper in keyset pages of pageSize and encoded as
+ * they are mapped, so memory use is the same for ten rows or a million.
+ *
+ * CSV has a header row, decimal amounts and local "yyyy-MM-dd HH:mm:ss"
+ * dates; an item catalog export can be imported again by ItemImporter. JSON
+ * is an object holding one array, with rows as in sync uploads.
+ */
+public class DataExporter {
+    static final int PAGE_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Dataset { SALES, DEBTS, ITEMS }
+
+    public enum Format { CSV, JSON }
+
+    public interface ProgressListener {
+        // Called on the exporting thread after each page is written
+        void onProgress(int rowsWritten);
+    }
+
+    // Up to limit rows after the row keyed (afterDate, afterId), in key order;
+    // afterId is null for the first page
+    interface PageQuery {
+        Cursor fetch(long afterDate, String afterId, int limit);
+    }
+
+    private final DatabaseHelper db;
+    private final int pageSize;
+    private volatile boolean cancelled;
+
+    public DataExporter(DatabaseHelper db) {
+        this(db, PAGE_SIZE);
+    }
+
+    DataExporter(DatabaseHelper db, int pageSize) {
+        this.db = db;
+        this.pageSize = pageSize;
+    }
+
+    // Writes the rows of dataset dated within [startDate, endDate]; the
+    // catalog is always exported whole. Finishes but does not close out.
+    // Returns the number of rows written, or throws CancellationException if
+    // cancel() was called.
+    public int export(Dataset dataset, Format format, long startDate, long endDate, boolean gzip,
+                      OutputStream out, ProgressListener listener) throws IOException {
+        PageQuery query;
+        switch (dataset) {
+            case SALES:
+                query = (afterDate, afterId, limit) ->
+                        db.getSalesExportPage(startDate, endDate, afterDate, afterId, limit);
+                break;
+            case DEBTS:
+                query = (afterDate, afterId, limit) ->
+                        db.getDebtsExportPage(startDate, endDate, afterDate, afterId, limit);
+                break;
+            default:
+                query = (afterDate, afterId, limit) -> db.getItemsExportPage(afterId, limit);
+                break;
+        }
+        return export(dataset, format, query, gzip, out, listener);
+    }
+
+    // Takes effect before the next page is read
+    public void cancel() {
+        cancelled = true;
+    }
+
+    int export(Dataset dataset, Format format, PageQuery query, boolean gzip,
+               OutputStream out, ProgressListener listener) throws IOException {
+        GZIPOutputStream zip = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(zip != null ? zip : out, "UTF-8"), BUFFER_SIZE);
+        RowWriter rows = format == Format.CSV ? new CsvRows(writer) : new JsonRows(writer);
+
+        rows.begin(dataset);
+        int rowCount = 0;
+        long afterDate = 0;
+        String afterId = null;
+        int pageRows;
+        do {
+            if (cancelled) {
+                throw new CancellationException("Export cancelled");
+            }
+            pageRows = 0;
+            Cursor cursor = query.fetch(afterDate, afterId, pageSize);
+            try {
+                ItemMapper itemMapper = dataset == Dataset.ITEMS ? new ItemMapper(cursor) : null;
+                SaleMapper saleMapper = dataset == Dataset.SALES ? new SaleMapper(cursor) : null;
+                DebtMapper debtMapper = dataset == Dataset.DEBTS ? new DebtMapper(cursor) : null;
+                while (cursor.moveToNext()) {
+                    if (saleMapper != null) {
+                        Sale sale = saleMapper.map(cursor);
+                        rows.writeSale(sale);
+                        afterDate = sale.getSaleDate();
+                        afterId = sale.getLocalId();
+                    } else if (debtMapper != null) {
+                        Debt debt = debtMapper.map(cursor);
+                        rows.writeDebt(debt);
+                        afterDate = debt.getCreatedAt();
+                        afterId = debt.getLocalId();
+                    } else {
+                        Item item = itemMapper.map(cursor);
+                        rows.writeItem(item);
+                        afterId = item.getLocalId();
+                    }
+                    pageRows++;
+                }
+            } finally {
+                cursor.close();
+            }
+            rowCount += pageRows;
+            if (listener != null) {
+                listener.onProgress(rowCount);
+            }
+        } while (pageRows == pageSize);
+        rows.end();
+
+        writer.flush();
+        if (zip != null) {
+            zip.finish();
+        }
+        out.flush();
+        return rowCount;
+    }
+
+    private interface RowWriter {
+        void begin(Dataset dataset) throws IOException;
+        void writeItem(Item item) throws IOException;
+        void writeSale(Sale sale) throws IOException;
+        void writeDebt(Debt debt) throws IOException;
+        void end() throws IOException;
+    }
+
+    private static class CsvRows implements RowWriter {
+        private final CsvWriter csv;
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        private long lastSecond = Long.MIN_VALUE;
+        private String lastDate;
+
+        CsvRows(Writer writer) {
+            csv = new CsvWriter(writer, ',');
+        }
+
+        @Override
+        public void begin(Dataset dataset) throws IOException {
+            switch (dataset) {
+                case SALES:
+                    csv.writeRecord("local_id", "item_id", "item_name", "quantity", "total_usd", "total_zwg",
+                            "payment_method", "debt_used_usd", "debt_used_zwg", "debt_id", "sale_date");
+                    break;
+                case DEBTS:
+                    csv.writeRecord("local_id", "customer_name", "amount_usd", "amount_zwg", "balance_usd",
+                            "balance_zwg", "type", "notes", "created_at", "cleared", "cleared_at");
+                    break;
+                default:
+                    csv.writeRecord("local_id", "name", "category", "price_usd", "price_zwg", "quantity",
+                            "created_at");
+                    break;
+            }
+        }
+
+        @Override
+        public void writeItem(Item item) throws IOException {
+            csv.writeField(item.getLocalId());
+            csv.writeField(item.getName());
+            csv.writeField(item.getCategory());
+            csv.writeField(Money.format(item.getPriceUSDCents()));
+            csv.writeField(Money.format(item.getPriceZWGCents()));
+            csv.writeField(item.getQuantity());
+            csv.writeField(formatDate(item.getCreatedAt()));
+            csv.endRecord();
+        }
+
+        @Override
+        public void writeSale(Sale sale) throws IOException {
+            csv.writeField(sale.getLocalId());
+            csv.writeField(sale.getItemId());
+            csv.writeField(sale.getItemName());
+            csv.writeField(sale.getQuantity());
+            csv.writeField(Money.format(sale.getTotalUSDCents()));
+            csv.writeField(Money.format(sale.getTotalZWGCents()));
+            csv.writeField(sale.getPaymentMethod());
+            csv.writeField(Money.format(sale.getDebtUsedUSDCents()));
+            csv.writeField(Money.format(sale.getDebtUsedZWGCents()));
+            csv.writeField(sale.getDebtId());
+            csv.writeField(formatDate(sale.getSaleDate()));
+            csv.endRecord();
+        }
+
+        @Override
+        public void writeDebt(Debt debt) throws IOException {
+            csv.writeField(debt.getLocalId());
+            csv.writeField(debt.getCustomerName());
+            csv.writeField(Money.format(debt.getAmountUSDCents()));
+            csv.writeField(Money.format(debt.getAmountZWGCents()));
+            csv.writeField(Money.format(debt.getBalanceUSDCents()));
+            csv.writeField(Money.format(debt.getBalanceZWGCents()));
+            csv.writeField(debt.getType());
+            csv.writeField(debt.getNotes());
+            csv.writeField(formatDate(debt.getCreatedAt()));
+            csv.writeField(debt.isCleared() ? "true" : "false");
+            csv.writeField(debt.isCleared() ? formatDate(debt.getClearedAt()) : null);
+            csv.endRecord();
+        }
+
+        @Override
+        public void end() {}
+
+        // Rows come in date order, so consecutive ones often share a second
+        private String formatDate(long millis) {
+            long second = Math.floorDiv(millis, 1000L);
+            if (second != lastSecond) {
+                lastSecond = second;
+                lastDate = dateFormat.format(new Date(second * 1000));
+            }
+            return lastDate;
+        }
+    }
+
+    private static class JsonRows implements RowWriter {
+        private final JsonWriter writer;
+
+        JsonRows(Writer out) {
+            writer = new JsonWriter(out);
+        }
+
+        @Override
+        public void begin(Dataset dataset) throws IOException {
+            writer.beginObject();
+            writer.name("exported_at").value(System.currentTimeMillis());
+            writer.name(dataset.name().toLowerCase(Locale.ROOT)).beginArray();
+        }
+
+        @Override
+        public void writeItem(Item item) throws IOException {
+            SyncPayloadWriter.writeItem(writer, item);
+        }
+
+        @Override
+        public void writeSale(Sale sale) throws IOException {
+            SyncPayloadWriter.writeSale(writer, sale);
+        }
+
+        @Override
+        public void writeDebt(Debt debt) throws IOException {
+            SyncPayloadWriter.writeDebt(writer, debt);
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.endArray();
+            writer.endObject();
+            writer.flush();
+        }
+    }
+}
@@ -5,21 +5,31 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import com.tishanyq.shopsync.Models.*;
 import com.tishanyq.shopsync.Models.Item;
 
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "shopsync.db";
-    private static final int DATABASE_VERSION = 3;
+    private static final int DATABASE_VERSION = 12;
     
     private static final String PREFS_NAME = "ShopSyncPrefs";
     private static final String PREF_APP_ID = "app_id";
     private static final String PREF_SHOP_ID = "shop_id";
     private static final String PREF_DEVICE_SLOT = "device_slot";
+    private static final String PREF_ID_SEQUENCE = "id_sequence";
     private static final String PREF_EXPIRES_AT = "expires_at";
     private static final String PREF_ACTIVATED_AT = "activated_at";
     private static final String PREF_IS_ACTIVATED = "is_activated";
@@ -33,10 +43,53 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String TABLE_UNSYNCED = "unsynced_data";
     private static final String TABLE_ANALYTICS = "analytics";
     private static final String TABLE_SYNC_LOG = "sync_log";
+    private static final String TABLE_DEBT_MOVEMENTS = "debt_movements";
 
-    public DatabaseHelper(Context context) {
+    private static DatabaseHelper instance;
+
+    private volatile Runnable changeLoggedListener;
+
+    // One helper (and so one connection pool) per process. Separate helpers on
+    // the same file would each hold their own writer and contend for the lock.
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
         this.context = context;
+        // WAL lets sync and report reads run alongside checkout writes
+        setWriteAheadLoggingEnabled(true);
+        LocalIds.setStore(new LocalIdStore());
+    }
+
+    // Device slot and sequence blocks for new local ids
+    private class LocalIdStore implements LocalIds.Store {
+        @Override
+        public int getDeviceSlot() {
+            return DatabaseHelper.this.getDeviceSlot();
+        }
+
+        @Override
+        public long reserveBlock(int size) {
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            long start = prefs.getLong(PREF_ID_SEQUENCE, 0);
+            // commit, not apply: the block must be on disk before any id from it is used
+            prefs.edit().putLong(PREF_ID_SEQUENCE, start + size).commit();
+            return start;
+        }
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // NORMAL is durable under WAL except on power loss, and skips the fsync per commit
+        db.execSQL("PRAGMA synchronous = NORMAL");
+        // 4 MB page cache (negative value is KiB)
+        db.execSQL("PRAGMA cache_size = -4096");
     }
 
     @Override
@@ -59,8 +112,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 "id TEXT, " +
                 "name TEXT, " +
                 "category TEXT, " +
-                "price_usd REAL, " +
-                "price_zwg REAL, " +
+                "price_usd_cents INTEGER, " +
+                "price_zwg_cents INTEGER, " +
                 "quantity INTEGER, " +
                 "synced INTEGER DEFAULT 0, " +
                 "created_at INTEGER)");
@@ -72,11 +125,11 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 "item_id TEXT, " +
                 "item_name TEXT, " +
                 "quantity INTEGER, " +
-                "total_usd REAL, " +
-                "total_zwg REAL, " +
+                "total_usd_cents INTEGER, " +
+                "total_zwg_cents INTEGER, " +
                 "payment_method TEXT, " +
-                "debt_used_usd REAL DEFAULT 0, " +
-                "debt_used_zwg REAL DEFAULT 0, " +
+                "debt_used_usd_cents INTEGER DEFAULT 0, " +
+                "debt_used_zwg_cents INTEGER DEFAULT 0, " +
                 "debt_id TEXT, " +
                 "sale_date INTEGER, " +
                 "synced INTEGER DEFAULT 0)");
@@ -86,14 +139,18 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 "local_id TEXT PRIMARY KEY, " +
                 "id TEXT, " +
                 "customer_name TEXT, " +
-                "amount_usd REAL, " +
-                "amount_zwg REAL, " +
+                "amount_usd_cents INTEGER, " +
+                "amount_zwg_cents INTEGER, " +
                 "type TEXT, " +
                 "notes TEXT, " +
                 "created_at INTEGER, " +
                 "cleared INTEGER DEFAULT 0, " +
                 "cleared_at INTEGER, " +
-                "synced INTEGER DEFAULT 0)");
+                "synced INTEGER DEFAULT 0, " +
+                "balance_usd_cents INTEGER DEFAULT 0, " +
+                "balance_zwg_cents INTEGER DEFAULT 0)");
+
+        createDebtLedger(db);
 
         // Unsynced data tracking
         db.execSQL("CREATE TABLE " + TABLE_UNSYNCED + " (" +
@@ -103,11 +160,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 "action TEXT, " +
                 "timestamp INTEGER)");
 
-        // Analytics cache (monthly data)
+        // Analytics cache: sales rollups keyed by day ("yyyy-MM-dd") and
+        // month ("yyyy-MM"), maintained alongside every sale insert
         db.execSQL("CREATE TABLE " + TABLE_ANALYTICS + " (" +
                 "month TEXT PRIMARY KEY, " +
-                "total_sales_usd REAL, " +
-                "total_sales_zwg REAL, " +
+                "total_sales_usd_cents INTEGER, " +
+                "total_sales_zwg_cents INTEGER, " +
                 "total_transactions INTEGER, " +
                 "data TEXT, " +
                 "last_updated INTEGER)");
@@ -116,7 +174,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL("CREATE TABLE " + TABLE_SYNC_LOG + " (" +
                 "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
                 "sync_date INTEGER, " +
-                "status TEXT)");
+                "status TEXT, " +
+                "raw_bytes INTEGER DEFAULT 0, " +  // request + response before compression
+                "wire_bytes INTEGER DEFAULT 0)");  // as sent and received over the network
+
+        createIndexes(db);
+        createItemSearch(db);
+        createChangeLogIndex(db);
     }
 
     @Override
@@ -127,6 +191,179 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         if (oldVersion < 3) {
             db.execSQL("ALTER TABLE " + TABLE_SHOP + " ADD COLUMN app_id TEXT");
         }
+        if (oldVersion < 4) {
+            createIndexes(db);
+            db.execSQL("ANALYZE");
+        }
+        // Version 5 first built the sales rollups; the cents step below rebuilds them
+        if (oldVersion < 6) {
+            createItemSearch(db);
+            db.execSQL("INSERT INTO items_fts (docid, name, category)" +
+                    " SELECT rowid, name, category FROM " + TABLE_ITEMS);
+        }
+        if (oldVersion < 7) {
+            db.execSQL("ALTER TABLE debts ADD COLUMN balance_usd REAL DEFAULT 0");
+            db.execSQL("ALTER TABLE debts ADD COLUMN balance_zwg REAL DEFAULT 0");
+            createDebtLedger(db);
+            // Partial use was never recorded before, so open every debt at its
+            // face value (zero once cleared)
+            db.execSQL("UPDATE debts SET" +
+                    " balance_usd = CASE WHEN cleared = 1 THEN 0 ELSE amount_usd END," +
+                    " balance_zwg = CASE WHEN cleared = 1 THEN 0 ELSE amount_zwg END");
+            // The ledger is created with cent columns, so convert as it's seeded
+            db.execSQL("INSERT INTO " + TABLE_DEBT_MOVEMENTS +
+                    " (debt_id, movement, amount_usd_cents, amount_zwg_cents, balance_usd_cents," +
+                    " balance_zwg_cents, created_at)" +
+                    " SELECT local_id, 'OPENED', " + toCents("balance_usd") + ", " + toCents("balance_zwg") +
+                    ", " + toCents("balance_usd") + ", " + toCents("balance_zwg") + ", created_at FROM debts");
+        }
+        if (oldVersion < 8) {
+            coalesceChangeLog(db);
+            createChangeLogIndex(db);
+        }
+        if (oldVersion < 9) {
+            db.execSQL("ALTER TABLE " + TABLE_SYNC_LOG + " ADD COLUMN raw_bytes INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE " + TABLE_SYNC_LOG + " ADD COLUMN wire_bytes INTEGER DEFAULT 0");
+        }
+        if (oldVersion < 10) {
+            createChangeLogIndex(db);
+        }
+        if (oldVersion < 11) {
+            // Money moves from REAL to INTEGER cents. The REAL columns stay
+            // behind unused, since dropping a column means rebuilding the table.
+            for (String column : new String[]{"price_usd", "price_zwg"}) {
+                addCentsColumn(db, TABLE_ITEMS, column);
+            }
+            for (String column : new String[]{"total_usd", "total_zwg", "debt_used_usd", "debt_used_zwg"}) {
+                addCentsColumn(db, TABLE_SALES, column);
+            }
+            for (String column : new String[]{"amount_usd", "amount_zwg", "balance_usd", "balance_zwg"}) {
+                addCentsColumn(db, "debts", column);
+                addCentsColumn(db, TABLE_DEBT_MOVEMENTS, column);
+            }
+            addCentsColumn(db, TABLE_ANALYTICS, "total_sales_usd");
+            addCentsColumn(db, TABLE_ANALYTICS, "total_sales_zwg");
+            rebuildSalesRollups(db);
+        }
+        if (oldVersion < 12) {
+            // idx_debts_created gains local_id so debt exports page without a sort
+            db.execSQL("DROP INDEX IF EXISTS idx_debts_created");
+            createIndexes(db);
+        }
+    }
+
+    // Adds column_cents next to a REAL money column and fills it in place, in
+    // one statement, with no copy of the table. Skipped when the table was
+    // already created with cent columns.
+    private void addCentsColumn(SQLiteDatabase db, String table, String column) {
+        Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+        boolean exists = false;
+        while (cursor.moveToNext() && !exists) {
+            exists = cursor.getString(1).equals(column + "_cents");
+        }
+        cursor.close();
+        if (exists) {
+            return;
+        }
+        db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + column + "_cents INTEGER DEFAULT 0");
+        db.execSQL("UPDATE " + table + " SET " + column + "_cents = " + toCents(column) +
+                " WHERE " + column + " IS NOT NULL");
+    }
+
+    // SQL for a REAL amount rounded to whole cents
+    private static String toCents(String column) {
+        return "CAST(ROUND(" + column + " * 100) AS INTEGER)";
+    }
+
+    // One index per hot query shape: equality columns first, then the
+    // range/ORDER BY column, so rows come back filtered and already sorted.
+    private void createIndexes(SQLiteDatabase db) {
+        // getSalesByDateRange: sale_date BETWEEN ? AND ? ORDER BY sale_date DESC
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_sales_date ON " + TABLE_SALES +
+                " (sale_date, local_id)");
+        // getActiveDebts / searchDebts / totals: cleared = 0 ORDER BY created_at DESC
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_debts_cleared_created ON debts" +
+                " (cleared, created_at)");
+        // searchDebts with cleared included: created_at BETWEEN ? AND ?, and
+        // getDebtsExportPage, keyed on (created_at, local_id)
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_debts_created ON debts (created_at, local_id)");
+        // getDebtByCustomerName: customer_name = ? AND cleared = 0 ORDER BY created_at DESC
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_debts_customer ON debts" +
+                " (customer_name, cleared, created_at)");
+        // getItemsByCategory / getAllCategories: category = ? ORDER BY name
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_items_category_name ON " + TABLE_ITEMS +
+                " (category, name)");
+        // getUnsyncedRecords: ORDER BY timestamp
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_unsynced_timestamp ON " + TABLE_UNSYNCED +
+                " (timestamp)");
+        // getLastSyncTime: MAX(sync_date) WHERE status = 'SUCCESS'
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_sync_log_status_date ON " + TABLE_SYNC_LOG +
+                " (status, sync_date)");
+    }
+
+    private void createChangeLogIndex(SQLiteDatabase db) {
+        // At most one change-log row per record; addUnsyncedRecord merges into it
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_unsynced_record ON " + TABLE_UNSYNCED +
+                " (table_name, record_id)");
+        // getPendingRows: one table's changes in id order, for sync batches
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_unsynced_table_id ON " + TABLE_UNSYNCED +
+                " (table_name, id)");
+    }
+
+    // Folds an append-only change log down to one merged row per record
+    private void coalesceChangeLog(SQLiteDatabase db) {
+        Map<String, String[]> merged = new LinkedHashMap<>();
+        Cursor cursor = db.rawQuery("SELECT table_name, record_id, action, timestamp FROM " +
+                TABLE_UNSYNCED + " ORDER BY id ASC", null);
+        while (cursor.moveToNext()) {
+            String tableName = cursor.getString(0);
+            String recordId = cursor.getString(1);
+            String key = tableName + ":" + recordId;
+            String[] previous = merged.remove(key);
+            String action = mergeChange(previous != null ? previous[2] : null, cursor.getString(2));
+            if (action != null) {
+                merged.put(key, new String[]{tableName, recordId, action, cursor.getString(3)});
+            }
+        }
+        cursor.close();
+
+        db.delete(TABLE_UNSYNCED, null, null);
+        for (String[] change : merged.values()) {
+            db.execSQL("INSERT INTO " + TABLE_UNSYNCED + " (table_name, record_id, action, timestamp)" +
+                    " VALUES (?, ?, ?, ?)", change);
+        }
+    }
+
+    // Full-text index over item name and category for the till search. Rows
+    // share the items rowid as docid; triggers keep it in step with every
+    // write path, including bulk ones.
+    private void createItemSearch(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS items_fts USING fts4(name, category)");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS items_fts_insert AFTER INSERT ON " + TABLE_ITEMS +
+                " BEGIN INSERT INTO items_fts (docid, name, category)" +
+                " VALUES (new.rowid, new.name, new.category); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS items_fts_update AFTER UPDATE OF name, category ON " +
+                TABLE_ITEMS + " BEGIN UPDATE items_fts SET name = new.name, category = new.category" +
+                " WHERE docid = old.rowid; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS items_fts_delete AFTER DELETE ON " + TABLE_ITEMS +
+                " BEGIN DELETE FROM items_fts WHERE docid = old.rowid; END");
+    }
+
+    // Append-only record of every change to a debt's balance. debts.balance_*
+    // always equals the balance_* of the debt's latest movement.
+    private void createDebtLedger(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_DEBT_MOVEMENTS + " (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "debt_id TEXT, " +
+                "movement TEXT, " + // OPENED, USED, CLEARED or SYNCED
+                "amount_usd_cents INTEGER, " +
+                "amount_zwg_cents INTEGER, " +
+                "balance_usd_cents INTEGER, " +
+                "balance_zwg_cents INTEGER, " +
+                "reference TEXT, " +
+                "created_at INTEGER)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_debt_movements_debt ON " + TABLE_DEBT_MOVEMENTS +
+                " (debt_id, id)");
     }
 
     public long saveShop(Shop shop) {
@@ -202,8 +439,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put("local_id", item.getLocalId());
         values.put("name", item.getName());
         values.put("category", item.getCategory());
-        values.put("price_usd", item.getPriceUSD());
-        values.put("price_zwg", item.getPriceZWG());
+        values.put("price_usd_cents", item.getPriceUSDCents());
+        values.put("price_zwg_cents", item.getPriceZWGCents());
         values.put("quantity", item.getQuantity());
         values.put("synced", item.isSynced() ? 1 : 0);
         values.put("created_at", item.getCreatedAt());
@@ -215,23 +452,95 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return result;
     }
 
+    // The SQL of hot queries is kept in package-private constants and
+    // builders so DatabaseHelperQueryPlanTest checks the plans of exactly
+    // what runs here
+    static final String SQL_ITEMS_BY_CATEGORY = "SELECT * FROM " + TABLE_ITEMS +
+            " WHERE category = ? ORDER BY name ASC";
+
     public List<Item> getItemsByCategory(String category) {
         List<Item> items = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_ITEMS, null, "category = ?",
-                new String[]{category}, null, null, "name ASC");
+        Cursor cursor = db.rawQuery(SQL_ITEMS_BY_CATEGORY, new String[]{category});
+
+        ItemMapper mapper = new ItemMapper(cursor);
+        while (cursor.moveToNext()) {
+            items.add(mapper.map(cursor));
+        }
+        cursor.close();
+        return items;
+    }
+
+    // Catalog order for getAllItems, served by idx_items_category_name
+    public static final String ORDER_BY_CATEGORY_NAME = "category ASC, name ASC";
+
+    static String allItemsSql(String orderBy) {
+        return "SELECT * FROM " + TABLE_ITEMS + " ORDER BY " + orderBy;
+    }
+
+    // Whole catalog in a single ordered cursor. orderBy is an ORDER BY clause
+    // such as ORDER_BY_CATEGORY_NAME.
+    public List<Item> getAllItems(String orderBy) {
+        List<Item> items = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(allItemsSql(orderBy), null);
 
+        ItemMapper mapper = new ItemMapper(cursor);
         while (cursor.moveToNext()) {
-            items.add(cursorToItem(cursor));
+            items.add(mapper.map(cursor));
         }
         cursor.close();
         return items;
     }
 
+    // Token-prefix search: every word typed must prefix a word of the item's
+    // name or category. Names starting with the first word rank first.
+    public List<Item> searchItems(String query, int limit) {
+        List<Item> items = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= query.length(); i++) {
+            char c = i < query.length() ? query.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (tokens.isEmpty()) {
+            return items;
+        }
+
+        StringBuilder match = new StringBuilder();
+        for (String t : tokens) {
+            if (match.length() > 0) match.append(' ');
+            match.append(t).append('*');
+        }
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + TABLE_ITEMS + ".* FROM items_fts JOIN " + TABLE_ITEMS +
+                        " ON " + TABLE_ITEMS + ".rowid = items_fts.docid" +
+                        " WHERE items_fts MATCH ?" +
+                        " ORDER BY (" + TABLE_ITEMS + ".name LIKE ?) DESC, length(" + TABLE_ITEMS + ".name)," +
+                        " " + TABLE_ITEMS + ".name LIMIT ?",
+                new String[]{match.toString(), tokens.get(0) + "%", String.valueOf(limit)});
+
+        ItemMapper mapper = new ItemMapper(cursor);
+        while (cursor.moveToNext()) {
+            items.add(mapper.map(cursor));
+        }
+        cursor.close();
+        return items;
+    }
+
+    static final String SQL_ALL_CATEGORIES = "SELECT DISTINCT category FROM " + TABLE_ITEMS +
+            " ORDER BY category";
+
     public List<String> getAllCategories() {
         List<String> categories = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT DISTINCT category FROM " + TABLE_ITEMS + " ORDER BY category", null);
+        Cursor cursor = db.rawQuery(SQL_ALL_CATEGORIES, null);
 
         while (cursor.moveToNext()) {
             categories.add(cursor.getString(0));
@@ -240,13 +549,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return categories;
     }
 
+    static final String SQL_ITEM_BY_LOCAL_ID = "SELECT * FROM " + TABLE_ITEMS + " WHERE local_id = ?";
+
     public Item getItemByLocalId(String localId) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_ITEMS, null, "local_id = ?",
-                new String[]{localId}, null, null, null);
+        Cursor cursor = db.rawQuery(SQL_ITEM_BY_LOCAL_ID, new String[]{localId});
         Item item = null;
         if (cursor.moveToFirst()) {
-            item = cursorToItem(cursor);
+            item = new ItemMapper(cursor).map(cursor);
         }
         cursor.close();
         return item;
@@ -256,6 +566,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put("quantity", newQuantity);
+        values.put("synced", 0);
         db.update(TABLE_ITEMS, values, "local_id = ?", new String[]{localId});
         addUnsyncedRecord(TABLE_ITEMS, localId, "UPDATE");
     }
@@ -274,102 +585,509 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put("item_id", sale.getItemId());
         values.put("item_name", sale.getItemName());
         values.put("quantity", sale.getQuantity());
-        values.put("total_usd", sale.getTotalUSD());
-        values.put("total_zwg", sale.getTotalZWG());
+        values.put("total_usd_cents", sale.getTotalUSDCents());
+        values.put("total_zwg_cents", sale.getTotalZWGCents());
         values.put("payment_method", sale.getPaymentMethod());
-        values.put("debt_used_usd", sale.getDebtUsedUSD());
-        values.put("debt_used_zwg", sale.getDebtUsedZWG());
+        values.put("debt_used_usd_cents", sale.getDebtUsedUSDCents());
+        values.put("debt_used_zwg_cents", sale.getDebtUsedZWGCents());
         values.put("debt_id", sale.getDebtId());
         values.put("sale_date", sale.getSaleDate());
         values.put("synced", sale.isSynced() ? 1 : 0);
 
-        long result = db.insert(TABLE_SALES, null, values);
-        if (result != -1) {
-            addUnsyncedRecord(TABLE_SALES, sale.getLocalId(), "INSERT");
+        db.beginTransaction();
+        try {
+            long result = db.insert(TABLE_SALES, null, values);
+            if (result != -1) {
+                addUnsyncedRecord(TABLE_SALES, sale.getLocalId(), "INSERT");
+                addToSalesRollups(db, sale.getSaleDate(), sale.getTotalUSDCents(), sale.getTotalZWGCents(), 1);
+            }
+            db.setTransactionSuccessful();
+            return result;
+        } finally {
+            db.endTransaction();
         }
-        return result;
     }
 
+    static final String SQL_SALES_BY_DATE_RANGE = "SELECT * FROM " + TABLE_SALES +
+            " WHERE sale_date BETWEEN ? AND ? ORDER BY sale_date DESC";
+
     public List<Sale> getSalesByDateRange(long startDate, long endDate) {
         List<Sale> sales = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_SALES, null,
-                "sale_date BETWEEN ? AND ?",
-                new String[]{String.valueOf(startDate), String.valueOf(endDate)},
-                null, null, "sale_date DESC");
+        Cursor cursor = db.rawQuery(SQL_SALES_BY_DATE_RANGE,
+                new String[]{String.valueOf(startDate), String.valueOf(endDate)});
 
+        SaleMapper mapper = new SaleMapper(cursor);
         while (cursor.moveToNext()) {
-            sales.add(cursorToSale(cursor));
+            sales.add(mapper.map(cursor));
         }
         cursor.close();
         return sales;
     }
 
+    // Keyset pagination over a date range, newest first. Pass the last sale of
+    // the previous page as 'after' (null for the first page); pages are keyed on
+    // (sale_date, local_id) so each one is an index seek, however deep.
+    static String salesPageSql(boolean hasAfter) {
+        return "SELECT * FROM " + TABLE_SALES + " WHERE sale_date BETWEEN ? AND ?" +
+                (hasAfter ? " AND sale_date <= ? AND (sale_date < ? OR local_id < ?)" : "") +
+                " ORDER BY sale_date DESC, local_id DESC LIMIT ?";
+    }
+
+    public List<Sale> getSalesPage(long startDate, long endDate, Sale after, int pageSize) {
+        List<Sale> sales = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        List<String> selectionArgs = new ArrayList<>();
+        selectionArgs.add(String.valueOf(startDate));
+        selectionArgs.add(String.valueOf(endDate));
+        if (after != null) {
+            selectionArgs.add(String.valueOf(after.getSaleDate()));
+            selectionArgs.add(String.valueOf(after.getSaleDate()));
+            selectionArgs.add(after.getLocalId());
+        }
+        selectionArgs.add(String.valueOf(pageSize));
+
+        Cursor cursor = db.rawQuery(salesPageSql(after != null), selectionArgs.toArray(new String[0]));
+
+        SaleMapper mapper = new SaleMapper(cursor);
+        while (cursor.moveToNext()) {
+            sales.add(mapper.map(cursor));
+        }
+        cursor.close();
+        return sales;
+    }
+
+    // The page just above 'before' in getSalesPage order (newest first), for
+    // scrolling back up once the history screen has dropped earlier pages
+    public List<Sale> getSalesPageBefore(long startDate, long endDate, Sale before, int pageSize) {
+        List<Sale> sales = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        // The same seek as an export page, read oldest first
+        Cursor cursor = db.rawQuery(salesExportPageSql(true),
+                new String[]{String.valueOf(startDate), String.valueOf(endDate),
+                        String.valueOf(before.getSaleDate()), String.valueOf(before.getSaleDate()),
+                        before.getLocalId(), String.valueOf(pageSize)});
+
+        SaleMapper mapper = new SaleMapper(cursor);
+        while (cursor.moveToNext()) {
+            sales.add(mapper.map(cursor));
+        }
+        cursor.close();
+        Collections.reverse(sales);
+        return sales;
+    }
+
+    // Export pages, oldest first: rows in [startDate, endDate] after the last
+    // row of the previous page, given as its date and local_id (afterId null for
+    // the first page). Keyed like getSalesPage so every page is an index seek,
+    // and each page fits one CursorWindow. Caller closes the cursor.
+    static String salesExportPageSql(boolean hasAfter) {
+        return exportPageSql(TABLE_SALES, "sale_date", hasAfter);
+    }
+
+    static String debtsExportPageSql(boolean hasAfter) {
+        return exportPageSql("debts", "created_at", hasAfter);
+    }
+
+    public Cursor getSalesExportPage(long startDate, long endDate, long afterDate, String afterId, int limit) {
+        return getExportPage(salesExportPageSql(afterId != null), startDate, endDate, afterDate, afterId, limit);
+    }
+
+    public Cursor getDebtsExportPage(long startDate, long endDate, long afterDate, String afterId, int limit) {
+        return getExportPage(debtsExportPageSql(afterId != null), startDate, endDate, afterDate, afterId, limit);
+    }
+
+    static String itemsExportPageSql(boolean hasAfter) {
+        return "SELECT * FROM " + TABLE_ITEMS + (hasAfter ? " WHERE local_id > ?" : "") +
+                " ORDER BY local_id ASC LIMIT ?";
+    }
+
+    // The whole catalog in local_id order, a page at a time
+    public Cursor getItemsExportPage(String afterId, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return db.rawQuery(itemsExportPageSql(afterId != null), afterId != null
+                ? new String[]{afterId, String.valueOf(limit)}
+                : new String[]{String.valueOf(limit)});
+    }
+
+    private static String exportPageSql(String tableName, String dateColumn, boolean hasAfter) {
+        return "SELECT * FROM " + tableName + " WHERE " + dateColumn + " BETWEEN ? AND ?" +
+                (hasAfter ? " AND " + dateColumn + " >= ? AND (" + dateColumn + " > ? OR local_id > ?)" : "") +
+                " ORDER BY " + dateColumn + " ASC, local_id ASC LIMIT ?";
+    }
+
+    private Cursor getExportPage(String sql, long startDate, long endDate,
+                                 long afterDate, String afterId, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        List<String> selectionArgs = new ArrayList<>();
+        selectionArgs.add(String.valueOf(startDate));
+        selectionArgs.add(String.valueOf(endDate));
+        if (afterId != null) {
+            selectionArgs.add(String.valueOf(afterDate));
+            selectionArgs.add(String.valueOf(afterDate));
+            selectionArgs.add(afterId);
+        }
+        selectionArgs.add(String.valueOf(limit));
+
+        return db.rawQuery(sql, selectionArgs.toArray(new String[0]));
+    }
+
+    // Records a whole basket in one transaction: a sale row and a stock
+    // decrement per cart line, the optional change-owed debt and the debt
+    // draw-down. Either everything is written or nothing is.
+    public CheckoutResult commitCheckout(Map<String, Integer> cart, Debt changeDebt, Payment payment) {
+        if (cart.isEmpty()) {
+            return CheckoutResult.failed("Cart is empty");
+        }
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement insertSale = db.compileStatement("INSERT INTO " + TABLE_SALES +
+                " (local_id, item_id, item_name, quantity, total_usd_cents, total_zwg_cents, payment_method," +
+                " debt_used_usd_cents, debt_used_zwg_cents, debt_id, sale_date, synced)" +
+                " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)");
+        SQLiteStatement decrementStock = db.compileStatement("UPDATE " + TABLE_ITEMS +
+                " SET quantity = quantity - ?, synced = 0 WHERE local_id = ? AND quantity >= ?");
+        SQLiteStatement insertUnsynced = compileUnsyncedMerge(db);
+
+        CheckoutResult result = new CheckoutResult();
+        db.beginTransaction();
+        try {
+            Map<String, Item> items = getItemsByLocalIds(db, cart.keySet());
+            long now = System.currentTimeMillis();
+
+            for (Map.Entry<String, Integer> entry : cart.entrySet()) {
+                Item item = items.get(entry.getKey());
+                int qty = entry.getValue();
+                if (item == null) {
+                    return CheckoutResult.failed("Item no longer exists");
+                }
+
+                decrementStock.bindLong(1, qty);
+                decrementStock.bindString(2, item.getLocalId());
+                decrementStock.bindLong(3, qty);
+                if (decrementStock.executeUpdateDelete() == 0) {
+                    return CheckoutResult.failed("Insufficient stock for " + item.getName());
+                }
+
+                Sale sale = new Sale(item.getLocalId(), item.getName(), qty,
+                        item.getPriceUSDCents() * qty, item.getPriceZWGCents() * qty);
+                sale.setSaleDate(now);
+                sale.setPaymentMethod(payment.getMethod());
+                sale.setDebtUsedUSDCents(payment.getDebtUsedUSDCents());
+                sale.setDebtUsedZWGCents(payment.getDebtUsedZWGCents());
+                sale.setDebtId(payment.getDebtId());
+
+                insertSale.bindString(1, sale.getLocalId());
+                insertSale.bindString(2, sale.getItemId());
+                bindText(insertSale, 3, sale.getItemName());
+                insertSale.bindLong(4, sale.getQuantity());
+                insertSale.bindLong(5, sale.getTotalUSDCents());
+                insertSale.bindLong(6, sale.getTotalZWGCents());
+                insertSale.bindString(7, sale.getPaymentMethod());
+                insertSale.bindLong(8, sale.getDebtUsedUSDCents());
+                insertSale.bindLong(9, sale.getDebtUsedZWGCents());
+                bindText(insertSale, 10, sale.getDebtId());
+                insertSale.bindLong(11, sale.getSaleDate());
+                insertSale.executeInsert();
+
+                bindUnsynced(insertUnsynced, TABLE_SALES, sale.getLocalId(), "INSERT", now);
+                bindUnsynced(insertUnsynced, TABLE_ITEMS, item.getLocalId(), "UPDATE", now);
+
+                result.getSales().add(sale);
+                result.setTotalUSDCents(result.getTotalUSDCents() + sale.getTotalUSDCents());
+                result.setTotalZWGCents(result.getTotalZWGCents() + sale.getTotalZWGCents());
+                result.setItemCount(result.getItemCount() + qty);
+            }
+
+            addToSalesRollups(db, now, result.getTotalUSDCents(), result.getTotalZWGCents(), result.getSales().size());
+
+            if (changeDebt != null && addDebt(changeDebt) == -1) {
+                return CheckoutResult.failed("Could not save debt");
+            }
+            if (payment.getDebtId() != null) {
+                String reference = result.getSales().get(0).getLocalId();
+                if (!useDebt(db, payment.getDebtId(), payment.getDebtUsedUSDCents(),
+                        payment.getDebtUsedZWGCents(), reference, now)) {
+                    return CheckoutResult.failed("Debt no longer available");
+                }
+            }
+
+            db.setTransactionSuccessful();
+            result.setSuccess(true);
+            notifyChangeLogged();
+            return result;
+        } finally {
+            db.endTransaction();
+            insertSale.close();
+            decrementStock.close();
+            insertUnsynced.close();
+        }
+    }
+
+    private Map<String, Item> getItemsByLocalIds(SQLiteDatabase db, Set<String> localIds) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < localIds.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        Map<String, Item> items = new HashMap<>();
+        Cursor cursor = db.query(TABLE_ITEMS, null, "local_id IN (" + placeholders + ")",
+                localIds.toArray(new String[0]), null, null, null);
+        ItemMapper mapper = new ItemMapper(cursor);
+        while (cursor.moveToNext()) {
+            Item item = mapper.map(cursor);
+            items.put(item.getLocalId(), item);
+        }
+        cursor.close();
+        return items;
+    }
+
+    // Same merge as addUnsyncedRecord for the two cases bulk writes make: a new
+    // record, and an update that must not demote a pending INSERT
+    private SQLiteStatement compileUnsyncedMerge(SQLiteDatabase db) {
+        return db.compileStatement("INSERT OR REPLACE INTO " + TABLE_UNSYNCED +
+                " (table_name, record_id, action, timestamp) VALUES (?1, ?2, COALESCE((SELECT action FROM " +
+                TABLE_UNSYNCED + " WHERE table_name = ?1 AND record_id = ?2 AND action = 'INSERT'), ?3), ?4)");
+    }
+
+    private static void bindText(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    private void bindUnsynced(SQLiteStatement statement, String tableName, String recordId,
+                              String action, long timestamp) {
+        statement.bindString(1, tableName);
+        statement.bindString(2, recordId);
+        statement.bindString(3, action);
+        statement.bindLong(4, timestamp);
+        statement.executeInsert();
+    }
+
+    // Sales rollups. Callers run these inside the transaction that writes the
+    // sales, so the rollups never disagree with the sales table.
+    private void addToSalesRollups(SQLiteDatabase db, long saleDate, long totalUSDCents,
+                                   long totalZWGCents, int transactions) {
+        String day = dayKey(saleDate);
+        long now = System.currentTimeMillis();
+        for (String period : new String[]{day, day.substring(0, 7)}) {
+            db.execSQL("INSERT OR IGNORE INTO " + TABLE_ANALYTICS +
+                    " (month, total_sales_usd_cents, total_sales_zwg_cents, total_transactions, last_updated)" +
+                    " VALUES (?, 0, 0, 0, ?)", new Object[]{period, now});
+            db.execSQL("UPDATE " + TABLE_ANALYTICS + " SET" +
+                    " total_sales_usd_cents = total_sales_usd_cents + ?," +
+                    " total_sales_zwg_cents = total_sales_zwg_cents + ?," +
+                    " total_transactions = total_transactions + ?," +
+                    " last_updated = ? WHERE month = ?",
+                    new Object[]{totalUSDCents, totalZWGCents, transactions, now, period});
+        }
+    }
+
+    public void rebuildSalesRollups() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            rebuildSalesRollups(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void rebuildSalesRollups(SQLiteDatabase db) {
+        db.delete(TABLE_ANALYTICS, null, null);
+        long now = System.currentTimeMillis();
+        for (String format : new String[]{"%Y-%m-%d", "%Y-%m"}) {
+            db.execSQL("INSERT INTO " + TABLE_ANALYTICS +
+                    " (month, total_sales_usd_cents, total_sales_zwg_cents, total_transactions, last_updated)" +
+                    " SELECT strftime('" + format + "', sale_date / 1000, 'unixepoch', 'localtime')," +
+                    " SUM(total_usd_cents), SUM(total_zwg_cents), COUNT(*), ?" +
+                    " FROM " + TABLE_SALES + " GROUP BY 1", new Object[]{now});
+        }
+    }
+
+    // Totals for whole days from startDate's day to endDate's day, read from
+    // the day rollups: at most one row per day, whatever the sales volume.
+    public SalesSummary getSalesRollup(long startDate, long endDate) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT IFNULL(SUM(total_sales_usd_cents), 0), IFNULL(SUM(total_sales_zwg_cents), 0)," +
+                        " TOTAL(total_transactions) FROM " + TABLE_ANALYTICS +
+                        " WHERE month BETWEEN ? AND ? AND length(month) = 10",
+                new String[]{dayKey(startDate), dayKey(endDate)});
+        SalesSummary summary = new SalesSummary();
+        if (cursor.moveToFirst()) {
+            summary.setTotalUSDCents(cursor.getLong(0));
+            summary.setTotalZWGCents(cursor.getLong(1));
+            summary.setTransactions(cursor.getInt(2));
+        }
+        cursor.close();
+        return summary;
+    }
+
+    // Exact totals for an arbitrary time range, summed by SQLite
+    public SalesSummary getSalesSummary(long startDate, long endDate) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT IFNULL(SUM(total_usd_cents), 0), IFNULL(SUM(total_zwg_cents), 0), COUNT(*) FROM " +
+                        TABLE_SALES + " WHERE sale_date BETWEEN ? AND ?",
+                new String[]{String.valueOf(startDate), String.valueOf(endDate)});
+        SalesSummary summary = new SalesSummary();
+        if (cursor.moveToFirst()) {
+            summary.setTotalUSDCents(cursor.getLong(0));
+            summary.setTotalZWGCents(cursor.getLong(1));
+            summary.setTransactions(cursor.getInt(2));
+        }
+        cursor.close();
+        return summary;
+    }
+
+    public List<TopItem> getTopSellingItems(long startDate, long endDate, int limit) {
+        List<TopItem> topItems = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT item_id, MAX(item_name), SUM(quantity) AS sold FROM " +
+                        TABLE_SALES + " WHERE sale_date BETWEEN ? AND ?" +
+                        " GROUP BY item_id ORDER BY sold DESC LIMIT ?",
+                new String[]{String.valueOf(startDate), String.valueOf(endDate), String.valueOf(limit)});
+        while (cursor.moveToNext()) {
+            topItems.add(new TopItem(cursor.getString(0), cursor.getString(1), cursor.getInt(2)));
+        }
+        cursor.close();
+        return topItems;
+    }
+
+    private static String dayKey(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        return String.format(Locale.US, "%04d-%02d-%02d", calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
     // Debt operations
     public long addDebt(Debt debt) {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put("local_id", debt.getLocalId());
         values.put("customer_name", debt.getCustomerName());
-        values.put("amount_usd", debt.getAmountUSD());
-        values.put("amount_zwg", debt.getAmountZWG());
+        values.put("amount_usd_cents", debt.getAmountUSDCents());
+        values.put("amount_zwg_cents", debt.getAmountZWGCents());
         values.put("type", debt.getType());
         values.put("notes", debt.getNotes());
         values.put("created_at", debt.getCreatedAt());
         values.put("cleared", debt.isCleared() ? 1 : 0);
         values.put("cleared_at", debt.getClearedAt());
         values.put("synced", debt.isSynced() ? 1 : 0);
+        values.put("balance_usd_cents", debt.getBalanceUSDCents());
+        values.put("balance_zwg_cents", debt.getBalanceZWGCents());
 
-        long result = db.insert("debts", null, values);
-        if (result != -1) {
-            addUnsyncedRecord("debts", debt.getLocalId(), "INSERT");
+        db.beginTransaction();
+        try {
+            long result = db.insert("debts", null, values);
+            if (result != -1) {
+                addDebtMovement(db, debt.getLocalId(), "OPENED", debt.getBalanceUSDCents(),
+                        debt.getBalanceZWGCents(), debt.getBalanceUSDCents(), debt.getBalanceZWGCents(),
+                        null, debt.getCreatedAt());
+                addUnsyncedRecord("debts", debt.getLocalId(), "INSERT");
+            }
+            db.setTransactionSuccessful();
+            return result;
+        } finally {
+            db.endTransaction();
         }
-        return result;
     }
 
+    // Draws usedUSD/usedZWG cents down from a debt's balance, clearing it once
+    // both balances reach zero. Runs inside the caller's transaction.
+    private boolean useDebt(SQLiteDatabase db, String localId, long usedUSD, long usedZWG,
+                            String reference, long timestamp) {
+        Cursor cursor = db.query("debts", new String[]{"balance_usd_cents", "balance_zwg_cents"},
+                "local_id = ? AND cleared = 0", new String[]{localId}, null, null, null);
+        if (!cursor.moveToFirst()) {
+            cursor.close();
+            return false;
+        }
+        long balanceUSD = Math.max(0, cursor.getLong(0) - usedUSD);
+        long balanceZWG = Math.max(0, cursor.getLong(1) - usedZWG);
+        cursor.close();
+
+        ContentValues values = new ContentValues();
+        values.put("balance_usd_cents", balanceUSD);
+        values.put("balance_zwg_cents", balanceZWG);
+        if (balanceUSD <= 0 && balanceZWG <= 0) {
+            values.put("cleared", 1);
+            values.put("cleared_at", timestamp);
+        }
+        values.put("synced", 0);
+        db.update("debts", values, "local_id = ?", new String[]{localId});
+        addDebtMovement(db, localId, "USED", -usedUSD, -usedZWG, balanceUSD, balanceZWG, reference, timestamp);
+        addUnsyncedRecord("debts", localId, "UPDATE");
+        return true;
+    }
+
+    private void addDebtMovement(SQLiteDatabase db, String debtId, String movement, long amountUSD,
+                                 long amountZWG, long balanceUSD, long balanceZWG,
+                                 String reference, long timestamp) {
+        ContentValues values = new ContentValues();
+        values.put("debt_id", debtId);
+        values.put("movement", movement);
+        values.put("amount_usd_cents", amountUSD);
+        values.put("amount_zwg_cents", amountZWG);
+        values.put("balance_usd_cents", balanceUSD);
+        values.put("balance_zwg_cents", balanceZWG);
+        values.put("reference", reference);
+        values.put("created_at", timestamp);
+        db.insert(TABLE_DEBT_MOVEMENTS, null, values);
+    }
+
+    static final String SQL_ACTIVE_DEBTS = "SELECT * FROM debts WHERE cleared = 0 ORDER BY created_at DESC";
+
     public List<Debt> getActiveDebts() {
         List<Debt> debts = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query("debts", null, "cleared = 0", null, null, null, "created_at DESC");
+        Cursor cursor = db.rawQuery(SQL_ACTIVE_DEBTS, null);
 
+        DebtMapper mapper = new DebtMapper(cursor);
         while (cursor.moveToNext()) {
-            debts.add(cursorToDebt(cursor));
+            debts.add(mapper.map(cursor));
         }
         cursor.close();
         return debts;
     }
 
+    static String searchDebtsSql(boolean byName, boolean byDate, boolean includeCleared) {
+        List<String> conditions = new ArrayList<>();
+        if (byName) conditions.add("customer_name LIKE ?");
+        if (byDate) conditions.add("created_at BETWEEN ? AND ?");
+        if (!includeCleared) conditions.add("cleared = 0");
+        return "SELECT * FROM debts" +
+                (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) +
+                " ORDER BY created_at DESC";
+    }
+
     public List<Debt> searchDebts(String customerName, long startDate, long endDate, boolean includeCleared) {
         List<Debt> debts = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
 
-        StringBuilder selection = new StringBuilder();
+        boolean byName = !customerName.isEmpty();
+        boolean byDate = startDate > 0 && endDate > 0;
         List<String> selectionArgs = new ArrayList<>();
-
-        if (!customerName.isEmpty()) {
-            selection.append("customer_name LIKE ? ");
+        if (byName) {
             selectionArgs.add("%" + customerName + "%");
         }
-
-        if (startDate > 0 && endDate > 0) {
-            if (selection.length() > 0) selection.append("AND ");
-            selection.append("created_at BETWEEN ? AND ? ");
+        if (byDate) {
             selectionArgs.add(String.valueOf(startDate));
             selectionArgs.add(String.valueOf(endDate));
         }
 
-        if (!includeCleared) {
-            if (selection.length() > 0) selection.append("AND ");
-            selection.append("cleared = 0");
-        }
-
-        Cursor cursor = db.query("debts", null,
-                selection.length() > 0 ? selection.toString() : null,
-                selectionArgs.size() > 0 ? selectionArgs.toArray(new String[0]) : null,
-                null, null, "created_at DESC");
+        Cursor cursor = db.rawQuery(searchDebtsSql(byName, byDate, includeCleared),
+                selectionArgs.toArray(new String[0]));
 
+        DebtMapper mapper = new DebtMapper(cursor);
         while (cursor.moveToNext()) {
-            debts.add(cursorToDebt(cursor));
+            debts.add(mapper.map(cursor));
         }
         cursor.close();
         return debts;
@@ -377,67 +1095,151 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     public void clearDebt(String localId) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put("cleared", 1);
-        values.put("cleared_at", System.currentTimeMillis());
-        db.update("debts", values, "local_id = ?", new String[]{localId});
-        addUnsyncedRecord("debts", localId, "UPDATE");
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query("debts", new String[]{"balance_usd_cents", "balance_zwg_cents"},
+                    "local_id = ? AND cleared = 0", new String[]{localId}, null, null, null);
+            if (cursor.moveToFirst()) {
+                long now = System.currentTimeMillis();
+                long balanceUSD = cursor.getLong(0);
+                long balanceZWG = cursor.getLong(1);
+
+                ContentValues values = new ContentValues();
+                values.put("cleared", 1);
+                values.put("cleared_at", now);
+                values.put("balance_usd_cents", 0);
+                values.put("balance_zwg_cents", 0);
+                values.put("synced", 0);
+                db.update("debts", values, "local_id = ?", new String[]{localId});
+                addDebtMovement(db, localId, "CLEARED", -balanceUSD, -balanceZWG, 0, 0, null, now);
+                addUnsyncedRecord("debts", localId, "UPDATE");
+            }
+            cursor.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
     }
 
+    static final String SQL_DEBT_BY_CUSTOMER_NAME = "SELECT * FROM debts" +
+            " WHERE customer_name = ? AND cleared = 0 ORDER BY created_at DESC LIMIT 1";
+
     public Debt getDebtByCustomerName(String customerName) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query("debts", null,
-                "customer_name = ? AND cleared = 0",
-                new String[]{customerName},
-                null, null, "created_at DESC", "1");
+        Cursor cursor = db.rawQuery(SQL_DEBT_BY_CUSTOMER_NAME, new String[]{customerName});
 
         Debt debt = null;
         if (cursor.moveToFirst()) {
-            debt = cursorToDebt(cursor);
+            debt = new DebtMapper(cursor).map(cursor);
         }
         cursor.close();
         return debt;
     }
 
-    public double getTotalActiveDebtUSD() {
+    static String totalActiveDebtSql(String balanceColumn) {
+        return "SELECT SUM(" + balanceColumn + ") FROM debts WHERE cleared = 0 AND type = 'CHANGE_OWED'";
+    }
+
+    public long getTotalActiveDebtUSDCents() {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-                "SELECT SUM(amount_usd) FROM debts WHERE cleared = 0 AND type = 'CHANGE_OWED'", null);
-        double total = 0;
+        Cursor cursor = db.rawQuery(totalActiveDebtSql("balance_usd_cents"), null);
+        long total = 0;
         if (cursor.moveToFirst()) {
-            total = cursor.getDouble(0);
+            total = cursor.getLong(0);
         }
         cursor.close();
         return total;
     }
 
-    public double getTotalActiveDebtZWG() {
+    public long getTotalActiveDebtZWGCents() {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-                "SELECT SUM(amount_zwg) FROM debts WHERE cleared = 0 AND type = 'CHANGE_OWED'", null);
-        double total = 0;
+        Cursor cursor = db.rawQuery(totalActiveDebtSql("balance_zwg_cents"), null);
+        long total = 0;
         if (cursor.moveToFirst()) {
-            total = cursor.getDouble(0);
+            total = cursor.getLong(0);
         }
         cursor.close();
         return total;
     }
 
-    // Unsynced data operations
+    // Unsynced data operations. The log keeps one row per record, merged with
+    // whatever is already pending for it. A merged row is re-inserted rather
+    // than updated so it always gets a fresh id, above any id already uploaded.
     private void addUnsyncedRecord(String tableName, String recordId, String action) {
         SQLiteDatabase db = this.getWritableDatabase();
+        String[] key = {tableName, recordId};
+        Cursor cursor = db.rawQuery("SELECT action FROM " + TABLE_UNSYNCED +
+                " WHERE table_name = ? AND record_id = ?", key);
+        String previous = cursor.moveToFirst() ? cursor.getString(0) : null;
+        cursor.close();
+
+        String merged = mergeChange(previous, action);
+        if (merged == null) {
+            db.delete(TABLE_UNSYNCED, "table_name = ? AND record_id = ?", key);
+            return;
+        }
         ContentValues values = new ContentValues();
         values.put("table_name", tableName);
         values.put("record_id", recordId);
-        values.put("action", action);
+        values.put("action", merged);
         values.put("timestamp", System.currentTimeMillis());
-        db.insert(TABLE_UNSYNCED, null, values);
+        db.insertWithOnConflict(TABLE_UNSYNCED, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        notifyChangeLogged();
+    }
+
+    // Told about every new change-log row, so background sync can watch the
+    // backlog. May run inside a transaction on any thread: keep it cheap.
+    public void setOnChangeLoggedListener(Runnable listener) {
+        changeLoggedListener = listener;
     }
 
+    private void notifyChangeLogged() {
+        Runnable listener = changeLoggedListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    // Pending action after `action` follows `previous` (null when nothing is
+    // pending). Returns null when the two cancel out: a record created and
+    // deleted between syncs never needs to reach the server.
+    static String mergeChange(String previous, String action) {
+        if (previous == null) {
+            return action;
+        }
+        if (previous.equals("INSERT")) {
+            return action.equals("DELETE") ? null : "INSERT";
+        }
+        return action.equals("DELETE") ? "DELETE" : "UPDATE";
+    }
+
+    // Background sync backlog: pending changes to the tables sync uploads
+    public int getPendingChangeCount() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_UNSYNCED +
+                " WHERE table_name IN ('items', 'sales', 'debts')", null);
+        int count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return count;
+    }
+
+    // Timestamp of the oldest pending change, or 0 when nothing is pending.
+    // A merged change carries the time of its latest edit.
+    public long getOldestPendingChangeTime() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT MIN(timestamp) FROM " + TABLE_UNSYNCED +
+                " WHERE table_name IN ('items', 'sales', 'debts')", null);
+        long oldest = cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        cursor.close();
+        return oldest;
+    }
+
+    static final String SQL_UNSYNCED_RECORDS = "SELECT * FROM " + TABLE_UNSYNCED + " ORDER BY timestamp ASC";
+
     public List<String[]> getUnsyncedRecords() {
         List<String[]> records = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_UNSYNCED, null, null, null, null, null, "timestamp ASC");
+        Cursor cursor = db.rawQuery(SQL_UNSYNCED_RECORDS, null);
 
         while (cursor.moveToNext()) {
             String[] record = new String[3];
@@ -450,6 +1252,245 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return records;
     }
 
+    // Sync upload source. The change log is pinned at its current highest id,
+    // then each table's pending rows are read in change-log order, by primary
+    // key, so the cost follows the number of changes rather than the size of
+    // each table. Deleted records have no row left and drop out, since the
+    // sync endpoint has no delete support. Rows logged after the pin wait for
+    // the next sync.
+    public long getLastChangeId() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT MAX(id) FROM " + TABLE_UNSYNCED, null);
+        long lastChangeId = cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        cursor.close();
+        return lastChangeId;
+    }
+
+    // Current rows for one table's changes with ids in (afterId, lastChangeId],
+    // plus the change id as change_id. Caller closes the cursor.
+    static String pendingRowsSql(String tableName) {
+        return "SELECT t.*, u.id AS change_id FROM " + TABLE_UNSYNCED + " u" +
+                " JOIN " + tableName + " t ON t.local_id = u.record_id" +
+                " WHERE u.table_name = ? AND u.id > ? AND u.id <= ? ORDER BY u.id LIMIT ?";
+    }
+
+    public Cursor getPendingRows(String tableName, long afterId, long lastChangeId, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return db.rawQuery(pendingRowsSql(tableName),
+                new String[]{tableName, String.valueOf(afterId), String.valueOf(lastChangeId),
+                        String.valueOf(limit)});
+    }
+
+    public boolean hasPendingRows(String tableName, long afterId, long lastChangeId) {
+        Cursor cursor = getPendingRows(tableName, afterId, lastChangeId, 1);
+        boolean pending = cursor.moveToFirst();
+        cursor.close();
+        return pending;
+    }
+
+    // Marks one acknowledged sync batch as done: flags its records synced and
+    // drops their change-log rows, in one transaction. A record changed again
+    // while the batch was in flight was re-logged under a newer id, so it
+    // stays pending and unflagged. Every writer that logs a change also sets
+    // synced = 0, so the flag never outlives a later edit.
+    public void acknowledgeChanges(String tableName, long afterId, long lastId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        Object[] args = {tableName, afterId, lastId};
+        db.beginTransaction();
+        try {
+            db.execSQL("UPDATE " + tableName + " SET synced = 1 WHERE local_id IN" +
+                    " (SELECT record_id FROM " + TABLE_UNSYNCED +
+                    " WHERE table_name = ? AND id > ? AND id <= ?)", args);
+            db.execSQL("DELETE FROM " + TABLE_UNSYNCED +
+                    " WHERE table_name = ? AND id > ? AND id <= ?", args);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Called once every table is uploaded up to lastChangeId. What is left at
+    // or below it belongs to deleted records, which the endpoint can't take,
+    // and would otherwise count as backlog forever.
+    public void discardUnsendableChanges(long lastChangeId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_UNSYNCED, "table_name IN ('items', 'sales', 'debts') AND id <= ?",
+                new String[]{String.valueOf(lastChangeId)});
+    }
+
+    // Applies one chunk of a sync pull in one transaction. Server rows are
+    // stored as synced and are not logged as changes. A record with a pending
+    // local change keeps the local version, which the next upload sends. New
+    // sales go into the rollups and debt balances into the ledger; items reach
+    // the search index through its triggers.
+    public void applyServerChanges(List<Item> items, List<Sale> sales, List<Debt> debts) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement pending = db.compileStatement("SELECT COUNT(*) FROM " + TABLE_UNSYNCED +
+                " WHERE table_name = ? AND record_id = ?");
+        db.beginTransaction();
+        try {
+            for (Item item : items) {
+                if (hasPendingChange(pending, TABLE_ITEMS, item.getLocalId())) {
+                    continue;
+                }
+                ContentValues values = new ContentValues();
+                values.put("id", item.getId());
+                values.put("name", item.getName());
+                values.put("category", item.getCategory());
+                values.put("price_usd_cents", item.getPriceUSDCents());
+                values.put("price_zwg_cents", item.getPriceZWGCents());
+                values.put("quantity", item.getQuantity());
+                values.put("synced", 1);
+                values.put("created_at", item.getCreatedAt());
+                // Update first: REPLACE would delete the row without firing the
+                // search index's delete trigger
+                if (db.update(TABLE_ITEMS, values, "local_id = ?", new String[]{item.getLocalId()}) == 0) {
+                    values.put("local_id", item.getLocalId());
+                    db.insert(TABLE_ITEMS, null, values);
+                }
+            }
+
+            for (Sale sale : sales) {
+                // Sales never change once made, so only new ones are written
+                ContentValues values = new ContentValues();
+                values.put("local_id", sale.getLocalId());
+                values.put("id", sale.getId());
+                values.put("item_id", sale.getItemId());
+                values.put("item_name", sale.getItemName());
+                values.put("quantity", sale.getQuantity());
+                values.put("total_usd_cents", sale.getTotalUSDCents());
+                values.put("total_zwg_cents", sale.getTotalZWGCents());
+                values.put("payment_method", sale.getPaymentMethod());
+                values.put("debt_used_usd_cents", sale.getDebtUsedUSDCents());
+                values.put("debt_used_zwg_cents", sale.getDebtUsedZWGCents());
+                values.put("debt_id", sale.getDebtId());
+                values.put("sale_date", sale.getSaleDate());
+                values.put("synced", 1);
+                if (db.insertWithOnConflict(TABLE_SALES, null, values, SQLiteDatabase.CONFLICT_IGNORE) != -1) {
+                    addToSalesRollups(db, sale.getSaleDate(), sale.getTotalUSDCents(), sale.getTotalZWGCents(), 1);
+                }
+            }
+
+            for (Debt debt : debts) {
+                if (!hasPendingChange(pending, "debts", debt.getLocalId())) {
+                    applyServerDebt(db, debt);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            pending.close();
+        }
+    }
+
+    private void applyServerDebt(SQLiteDatabase db, Debt debt) {
+        ContentValues values = new ContentValues();
+        values.put("id", debt.getId());
+        values.put("customer_name", debt.getCustomerName());
+        values.put("amount_usd_cents", debt.getAmountUSDCents());
+        values.put("amount_zwg_cents", debt.getAmountZWGCents());
+        values.put("type", debt.getType());
+        values.put("notes", debt.getNotes());
+        values.put("created_at", debt.getCreatedAt());
+        values.put("cleared", debt.isCleared() ? 1 : 0);
+        values.put("cleared_at", debt.getClearedAt());
+        values.put("synced", 1);
+        values.put("balance_usd_cents", debt.getBalanceUSDCents());
+        values.put("balance_zwg_cents", debt.getBalanceZWGCents());
+
+        String[] key = {debt.getLocalId()};
+        Cursor cursor = db.query("debts", new String[]{"balance_usd_cents", "balance_zwg_cents"},
+                "local_id = ?", key, null, null, null);
+        boolean exists = cursor.moveToFirst();
+        long balanceUSD = exists ? cursor.getLong(0) : 0;
+        long balanceZWG = exists ? cursor.getLong(1) : 0;
+        cursor.close();
+
+        long now = System.currentTimeMillis();
+        if (!exists) {
+            values.put("local_id", debt.getLocalId());
+            db.insert("debts", null, values);
+            addDebtMovement(db, debt.getLocalId(), "OPENED", debt.getBalanceUSDCents(),
+                    debt.getBalanceZWGCents(), debt.getBalanceUSDCents(), debt.getBalanceZWGCents(),
+                    null, debt.getCreatedAt());
+            return;
+        }
+        db.update("debts", values, "local_id = ?", key);
+        if (balanceUSD != debt.getBalanceUSDCents() || balanceZWG != debt.getBalanceZWGCents()) {
+            addDebtMovement(db, debt.getLocalId(), "SYNCED", debt.getBalanceUSDCents() - balanceUSD,
+                    debt.getBalanceZWGCents() - balanceZWG, debt.getBalanceUSDCents(),
+                    debt.getBalanceZWGCents(), null, now);
+        }
+    }
+
+    // Writes one batch of imported catalog rows in a single transaction. An
+    // item with the same name and category as an existing one updates its
+    // prices and stock; anything else is inserted. Counts go into result.
+    public void importItems(List<Item> items, ImportResult result) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement findItem = db.compileStatement("SELECT local_id FROM " + TABLE_ITEMS +
+                " WHERE category = ? AND name = ? LIMIT 1");
+        SQLiteStatement updateItem = db.compileStatement("UPDATE " + TABLE_ITEMS +
+                " SET price_usd_cents = ?, price_zwg_cents = ?, quantity = ?, synced = 0 WHERE local_id = ?");
+        SQLiteStatement insertItem = db.compileStatement("INSERT INTO " + TABLE_ITEMS +
+                " (local_id, name, category, price_usd_cents, price_zwg_cents, quantity, synced, created_at)" +
+                " VALUES (?, ?, ?, ?, ?, ?, 0, ?)");
+        SQLiteStatement insertUnsynced = compileUnsyncedMerge(db);
+
+        int inserted = 0, updated = 0;
+        db.beginTransaction();
+        try {
+            long now = System.currentTimeMillis();
+            for (Item item : items) {
+                findItem.bindString(1, item.getCategory());
+                findItem.bindString(2, item.getName());
+                String localId;
+                try {
+                    localId = findItem.simpleQueryForString();
+                } catch (SQLiteDoneException e) {
+                    localId = null;
+                }
+
+                if (localId != null) {
+                    updateItem.bindLong(1, item.getPriceUSDCents());
+                    updateItem.bindLong(2, item.getPriceZWGCents());
+                    updateItem.bindLong(3, item.getQuantity());
+                    updateItem.bindString(4, localId);
+                    updateItem.executeUpdateDelete();
+                    bindUnsynced(insertUnsynced, TABLE_ITEMS, localId, "UPDATE", now);
+                    updated++;
+                } else {
+                    insertItem.bindString(1, item.getLocalId());
+                    insertItem.bindString(2, item.getName());
+                    insertItem.bindString(3, item.getCategory());
+                    insertItem.bindLong(4, item.getPriceUSDCents());
+                    insertItem.bindLong(5, item.getPriceZWGCents());
+                    insertItem.bindLong(6, item.getQuantity());
+                    insertItem.bindLong(7, item.getCreatedAt());
+                    insertItem.executeInsert();
+                    bindUnsynced(insertUnsynced, TABLE_ITEMS, item.getLocalId(), "INSERT", now);
+                    inserted++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            findItem.close();
+            updateItem.close();
+            insertItem.close();
+            insertUnsynced.close();
+        }
+        result.setInserted(result.getInserted() + inserted);
+        result.setUpdated(result.getUpdated() + updated);
+        notifyChangeLogged();
+    }
+
+    private static boolean hasPendingChange(SQLiteStatement pending, String tableName, String recordId) {
+        pending.bindString(1, tableName);
+        pending.bindString(2, recordId);
+        return pending.simpleQueryForLong() > 0;
+    }
+
     public void clearUnsyncedRecords() {
         SQLiteDatabase db = this.getWritableDatabase();
         db.delete(TABLE_UNSYNCED, null, null);
@@ -457,17 +1498,25 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     // Sync log operations
     public void logSync(boolean success) {
+        logSync(success, 0, 0);
+    }
+
+    public void logSync(boolean success, long rawBytes, long wireBytes) {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put("sync_date", System.currentTimeMillis());
         values.put("status", success ? "SUCCESS" : "FAILED");
+        values.put("raw_bytes", rawBytes);
+        values.put("wire_bytes", wireBytes);
         db.insert(TABLE_SYNC_LOG, null, values);
     }
 
+    static final String SQL_LAST_SYNC_TIME = "SELECT MAX(sync_date) FROM " + TABLE_SYNC_LOG +
+            " WHERE status = 'SUCCESS'";
+
     public long getLastSyncTime() {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT MAX(sync_date) FROM " + TABLE_SYNC_LOG +
-                " WHERE status = 'SUCCESS'", null);
+        Cursor cursor = db.rawQuery(SQL_LAST_SYNC_TIME, null);
         long lastSync = 0;
         if (cursor.moveToFirst()) {
             lastSync = cursor.getLong(0);
@@ -484,55 +1533,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.delete(TABLE_ANALYTICS, null, null);
     }
 
-    // Helper methods
-    private Item cursorToItem(Cursor cursor) {
-        Item item = new Item();
-        item.setLocalId(cursor.getString(cursor.getColumnIndexOrThrow("local_id")));
-        item.setId(cursor.getString(cursor.getColumnIndexOrThrow("id")));
-        item.setName(cursor.getString(cursor.getColumnIndexOrThrow("name")));
-        item.setCategory(cursor.getString(cursor.getColumnIndexOrThrow("category")));
-        item.setPriceUSD(cursor.getDouble(cursor.getColumnIndexOrThrow("price_usd")));
-        item.setPriceZWG(cursor.getDouble(cursor.getColumnIndexOrThrow("price_zwg")));
-        item.setQuantity(cursor.getInt(cursor.getColumnIndexOrThrow("quantity")));
-        item.setSynced(cursor.getInt(cursor.getColumnIndexOrThrow("synced")) == 1);
-        item.setCreatedAt(cursor.getLong(cursor.getColumnIndexOrThrow("created_at")));
-        return item;
-    }
-
-    private Sale cursorToSale(Cursor cursor) {
-        Sale sale = new Sale();
-        sale.setLocalId(cursor.getString(cursor.getColumnIndexOrThrow("local_id")));
-        sale.setId(cursor.getString(cursor.getColumnIndexOrThrow("id")));
-        sale.setItemId(cursor.getString(cursor.getColumnIndexOrThrow("item_id")));
-        sale.setItemName(cursor.getString(cursor.getColumnIndexOrThrow("item_name")));
-        sale.setQuantity(cursor.getInt(cursor.getColumnIndexOrThrow("quantity")));
-        sale.setTotalUSD(cursor.getDouble(cursor.getColumnIndexOrThrow("total_usd")));
-        sale.setTotalZWG(cursor.getDouble(cursor.getColumnIndexOrThrow("total_zwg")));
-        sale.setPaymentMethod(cursor.getString(cursor.getColumnIndexOrThrow("payment_method")));
-        sale.setDebtUsedUSD(cursor.getDouble(cursor.getColumnIndexOrThrow("debt_used_usd")));
-        sale.setDebtUsedZWG(cursor.getDouble(cursor.getColumnIndexOrThrow("debt_used_zwg")));
-        sale.setDebtId(cursor.getString(cursor.getColumnIndexOrThrow("debt_id")));
-        sale.setSaleDate(cursor.getLong(cursor.getColumnIndexOrThrow("sale_date")));
-        sale.setSynced(cursor.getInt(cursor.getColumnIndexOrThrow("synced")) == 1);
-        return sale;
-    }
-
-    private Debt cursorToDebt(Cursor cursor) {
-        Debt debt = new Debt();
-        debt.setLocalId(cursor.getString(cursor.getColumnIndexOrThrow("local_id")));
-        debt.setId(cursor.getString(cursor.getColumnIndexOrThrow("id")));
-        debt.setCustomerName(cursor.getString(cursor.getColumnIndexOrThrow("customer_name")));
-        debt.setAmountUSD(cursor.getDouble(cursor.getColumnIndexOrThrow("amount_usd")));
-        debt.setAmountZWG(cursor.getDouble(cursor.getColumnIndexOrThrow("amount_zwg")));
-        debt.setType(cursor.getString(cursor.getColumnIndexOrThrow("type")));
-        debt.setNotes(cursor.getString(cursor.getColumnIndexOrThrow("notes")));
-        debt.setCreatedAt(cursor.getLong(cursor.getColumnIndexOrThrow("created_at")));
-        debt.setCleared(cursor.getInt(cursor.getColumnIndexOrThrow("cleared")) == 1);
-        debt.setClearedAt(cursor.getLong(cursor.getColumnIndexOrThrow("cleared_at")));
-        debt.setSynced(cursor.getInt(cursor.getColumnIndexOrThrow("synced")) == 1);
-        return debt;
-    }
-    
     public void saveAppAuthorization(String appId, String shopId, int deviceSlot, long activatedAt, long expiresAt) {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         SharedPreferences.Editor editor = prefs.edit();
@@ -612,4 +1612,87 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         return prefs.getString(PREF_PRODUCT_KEY, null);
     }
-}
\ No newline at end of file
+    
+    private static final String PREF_SYNC_GZIP = "sync_gzip";
+    
+    // Cleared once the backend rejects a gzip request body
+    public boolean isSyncGzipEnabled() {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getBoolean(PREF_SYNC_GZIP, true);
+    }
+    
+    public void setSyncGzipEnabled(boolean enabled) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putBoolean(PREF_SYNC_GZIP, enabled).apply();
+    }
+    
+    private static final String PREF_SYNC_CHECKPOINT_TABLE = "sync_checkpoint_table";
+    private static final String PREF_SYNC_CHECKPOINT_ID = "sync_checkpoint_id";
+    private static final String PREF_SYNC_CHECKPOINT_LIMIT = "sync_checkpoint_limit";
+    
+    // Progress of an interrupted sync upload, or null when none is in progress
+    public SyncCheckpoint getSyncCheckpoint() {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String tableName = prefs.getString(PREF_SYNC_CHECKPOINT_TABLE, null);
+        if (tableName == null) {
+            return null;
+        }
+        return new SyncCheckpoint(tableName,
+                prefs.getLong(PREF_SYNC_CHECKPOINT_ID, 0),
+                prefs.getLong(PREF_SYNC_CHECKPOINT_LIMIT, 0));
+    }
+    
+    public void saveSyncCheckpoint(SyncCheckpoint checkpoint) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        // commit, not apply: it must be on disk before the next batch goes out
+        prefs.edit()
+                .putString(PREF_SYNC_CHECKPOINT_TABLE, checkpoint.getTableName())
+                .putLong(PREF_SYNC_CHECKPOINT_ID, checkpoint.getChangeId())
+                .putLong(PREF_SYNC_CHECKPOINT_LIMIT, checkpoint.getLastChangeId())
+                .commit();
+    }
+    
+    public void clearSyncCheckpoint() {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit()
+                .remove(PREF_SYNC_CHECKPOINT_TABLE)
+                .remove(PREF_SYNC_CHECKPOINT_ID)
+                .remove(PREF_SYNC_CHECKPOINT_LIMIT)
+                .commit();
+    }
+    
+    private static final String PREF_SYNC_FAILURES = "sync_failures";
+    private static final String PREF_SYNC_RETRY_AT = "sync_retry_at";
+    
+    // Background sync backoff, kept across process restarts
+    public int getSyncFailureCount() {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getInt(PREF_SYNC_FAILURES, 0);
+    }
+    
+    public long getSyncRetryAt() {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getLong(PREF_SYNC_RETRY_AT, 0);
+    }
+    
+    public void saveSyncBackoff(int failures, long retryAt) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit()
+                .putInt(PREF_SYNC_FAILURES, failures)
+                .putLong(PREF_SYNC_RETRY_AT, retryAt)
+                .apply();
+    }
+    
+    private static final String PREF_SYNC_PULL_TOKEN = "sync_pull_token";
+    
+    // Server change_seq of the last pulled change; 0 before the first pull
+    public long getSyncPullToken() {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getLong(PREF_SYNC_PULL_TOKEN, 0);
+    }
+    
+    public void saveSyncPullToken(long token) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putLong(PREF_SYNC_PULL_TOKEN, token).commit();
+    }
+}
@@ -0,0 +1,45 @@
+package com.tishanyq.shopsync.Database;
+
+import android.database.Cursor;
+
+import com.tishanyq.shopsync.Models.Debt;
+
+// Resolves column indices once per cursor, then maps each row by index.
+class DebtMapper {
+    private final int localId, id, customerName, amountUSD, amountZWG, type, notes, createdAt,
+            cleared, clearedAt, synced, balanceUSD, balanceZWG;
+
+    DebtMapper(Cursor cursor) {
+        localId = cursor.getColumnIndexOrThrow("local_id");
+        id = cursor.getColumnIndexOrThrow("id");
+        customerName = cursor.getColumnIndexOrThrow("customer_name");
+        amountUSD = cursor.getColumnIndexOrThrow("amount_usd_cents");
+        amountZWG = cursor.getColumnIndexOrThrow("amount_zwg_cents");
+        type = cursor.getColumnIndexOrThrow("type");
+        notes = cursor.getColumnIndexOrThrow("notes");
+        createdAt = cursor.getColumnIndexOrThrow("created_at");
+        cleared = cursor.getColumnIndexOrThrow("cleared");
+        clearedAt = cursor.getColumnIndexOrThrow("cleared_at");
+        synced = cursor.getColumnIndexOrThrow("synced");
+        balanceUSD = cursor.getColumnIndexOrThrow("balance_usd_cents");
+        balanceZWG = cursor.getColumnIndexOrThrow("balance_zwg_cents");
+    }
+
+    Debt map(Cursor cursor) {
+        Debt debt = new Debt();
+        debt.setLocalId(cursor.getString(localId));
+        debt.setId(cursor.getString(id));
+        debt.setCustomerName(cursor.getString(customerName));
+        debt.setAmountUSDCents(cursor.getLong(amountUSD));
+        debt.setAmountZWGCents(cursor.getLong(amountZWG));
+        debt.setType(cursor.getString(type));
+        debt.setNotes(cursor.getString(notes));
+        debt.setCreatedAt(cursor.getLong(createdAt));
+        debt.setCleared(cursor.getInt(cleared) == 1);
+        debt.setClearedAt(cursor.getLong(clearedAt));
+        debt.setSynced(cursor.getInt(synced) == 1);
+        debt.setBalanceUSDCents(cursor.getLong(balanceUSD));
+        debt.setBalanceZWGCents(cursor.getLong(balanceZWG));
+        return debt;
+    }
+}
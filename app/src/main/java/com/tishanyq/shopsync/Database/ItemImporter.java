@@ -0,0 +1,178 @@
+package com.tishanyq.shopsync.Database;
+
+import com.tishanyq.shopsync.Models.ImportResult;
+import com.tishanyq.shopsync.Models.Item;
+import com.tishanyq.shopsync.Models.Money;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Imports an item catalog from a CSV or TSV file with a header row. Columns
+ * are matched by name: name and price_usd are required; category, price_zwg
+ * and quantity (or stock, qty) are optional. Rows are parsed as they stream
+ * in, checked, and written through DatabaseHelper.importItems in batches of
+ * batchSize, each in one transaction, so memory use doesn't grow with the
+ * file. Bad rows are skipped and reported; the rest still import.
+ */
+public class ItemImporter {
+    static final int BATCH_SIZE = 500;
+    static final String DEFAULT_CATEGORY = "Other";
+    private static final int MAX_NAME_LENGTH = 200;
+    private static final int HEADER_READ_AHEAD = 64 * 1024;
+
+    public interface ProgressListener {
+        // Called on the importing thread after each batch is written
+        void onProgress(ImportResult progress);
+    }
+
+    private final DatabaseHelper db;
+    private final int batchSize;
+    private volatile boolean cancelled;
+
+    private int nameColumn = -1, categoryColumn = -1, priceUSDColumn = -1, priceZWGColumn = -1,
+            quantityColumn = -1;
+
+    public ItemImporter(DatabaseHelper db) {
+        this(db, BATCH_SIZE);
+    }
+
+    ItemImporter(DatabaseHelper db, int batchSize) {
+        this.db = db;
+        this.batchSize = batchSize;
+    }
+
+    // Reads the whole file. Throws IOException if it can't be read or has no
+    // usable header, and CancellationException if cancel() was called; batches
+    // already written stay imported.
+    public ImportResult importItems(InputStream in, ProgressListener listener) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        reader.mark(HEADER_READ_AHEAD);
+        char delimiter = CsvReader.detectDelimiter(reader.readLine());
+        reader.reset();
+
+        CsvReader csv = new CsvReader(reader, delimiter);
+        readHeader(csv.readRecord());
+
+        ImportResult result = new ImportResult();
+        List<Item> batch = new ArrayList<>(batchSize);
+        String[] row;
+        while ((row = csv.readRecord()) != null) {
+            result.setRowsRead(result.getRowsRead() + 1);
+            Item item = toItem(row, csv.getRecordLine(), result);
+            if (item != null) {
+                batch.add(item);
+            }
+            if (batch.size() >= batchSize) {
+                flush(batch, result, listener);
+            }
+        }
+        flush(batch, result, listener);
+        return result;
+    }
+
+    // Takes effect before the next batch is written
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void readHeader(String[] header) throws IOException {
+        if (header == null) {
+            throw new IOException("The file is empty");
+        }
+        for (int i = 0; i < header.length; i++) {
+            String name = header[i].replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+            switch (name) {
+                case "name": nameColumn = i; break;
+                case "category": categoryColumn = i; break;
+                case "price_usd": priceUSDColumn = i; break;
+                case "price_zwg": priceZWGColumn = i; break;
+                case "quantity": case "stock": case "qty": quantityColumn = i; break;
+                default: break;
+            }
+        }
+        if (nameColumn < 0 || priceUSDColumn < 0) {
+            throw new IOException("The header needs at least name and price_usd columns");
+        }
+    }
+
+    private Item toItem(String[] row, int line, ImportResult result) {
+        String name = field(row, nameColumn);
+        if (name.isEmpty()) {
+            result.addError(line, "name is empty");
+            return null;
+        }
+        if (name.length() > MAX_NAME_LENGTH) {
+            result.addError(line, "name is longer than " + MAX_NAME_LENGTH + " characters");
+            return null;
+        }
+        String category = field(row, categoryColumn);
+        if (category.isEmpty()) {
+            category = DEFAULT_CATEGORY;
+        }
+
+        long priceUSD, priceZWG;
+        int quantity;
+        try {
+            priceUSD = parsePrice(field(row, priceUSDColumn), true);
+            priceZWG = parsePrice(field(row, priceZWGColumn), false);
+        } catch (NumberFormatException e) {
+            result.addError(line, e.getMessage());
+            return null;
+        }
+        String quantityText = field(row, quantityColumn);
+        try {
+            quantity = quantityText.isEmpty() ? 0 : Integer.parseInt(quantityText);
+        } catch (NumberFormatException e) {
+            result.addError(line, "quantity \"" + quantityText + "\" is not a whole number");
+            return null;
+        }
+        if (quantity < 0) {
+            result.addError(line, "quantity is negative");
+            return null;
+        }
+        return new Item(name, category, priceUSD, priceZWG, quantity);
+    }
+
+    private static long parsePrice(String text, boolean required) {
+        if (text.isEmpty()) {
+            if (required) {
+                throw new NumberFormatException("price_usd is empty");
+            }
+            return 0;
+        }
+        long cents;
+        try {
+            cents = Money.parseCents(text);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("price \"" + text + "\" is not a number");
+        }
+        if (cents < 0) {
+            throw new NumberFormatException("price \"" + text + "\" is negative");
+        }
+        return cents;
+    }
+
+    private static String field(String[] row, int column) {
+        return column >= 0 && column < row.length ? row[column].trim() : "";
+    }
+
+    private void flush(List<Item> batch, ImportResult result, ProgressListener listener) {
+        if (cancelled) {
+            throw new CancellationException("Import cancelled");
+        }
+        if (!batch.isEmpty()) {
+            db.importItems(batch, result);
+            batch.clear();
+        }
+        if (listener != null) {
+            listener.onProgress(result);
+        }
+    }
+}
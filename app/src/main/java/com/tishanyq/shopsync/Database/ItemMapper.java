@@ -0,0 +1,36 @@
+package com.tishanyq.shopsync.Database;
+
+import android.database.Cursor;
+
+import com.tishanyq.shopsync.Models.Item;
+
+// Resolves column indices once per cursor, then maps each row by index.
+class ItemMapper {
+    private final int localId, id, name, category, priceUSD, priceZWG, quantity, synced, createdAt;
+
+    ItemMapper(Cursor cursor) {
+        localId = cursor.getColumnIndexOrThrow("local_id");
+        id = cursor.getColumnIndexOrThrow("id");
+        name = cursor.getColumnIndexOrThrow("name");
+        category = cursor.getColumnIndexOrThrow("category");
+        priceUSD = cursor.getColumnIndexOrThrow("price_usd_cents");
+        priceZWG = cursor.getColumnIndexOrThrow("price_zwg_cents");
+        quantity = cursor.getColumnIndexOrThrow("quantity");
+        synced = cursor.getColumnIndexOrThrow("synced");
+        createdAt = cursor.getColumnIndexOrThrow("created_at");
+    }
+
+    Item map(Cursor cursor) {
+        Item item = new Item();
+        item.setLocalId(cursor.getString(localId));
+        item.setId(cursor.getString(id));
+        item.setName(cursor.getString(name));
+        item.setCategory(cursor.getString(category));
+        item.setPriceUSDCents(cursor.getLong(priceUSD));
+        item.setPriceZWGCents(cursor.getLong(priceZWG));
+        item.setQuantity(cursor.getInt(quantity));
+        item.setSynced(cursor.getInt(synced) == 1);
+        item.setCreatedAt(cursor.getLong(createdAt));
+        return item;
+    }
+}
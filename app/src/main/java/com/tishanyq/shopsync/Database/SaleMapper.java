@@ -0,0 +1,45 @@
+package com.tishanyq.shopsync.Database;
+
+import android.database.Cursor;
+
+import com.tishanyq.shopsync.Models.Sale;
+
+// Resolves column indices once per cursor, then maps each row by index.
+class SaleMapper {
+    private final int localId, id, itemId, itemName, quantity, totalUSD, totalZWG, paymentMethod,
+            debtUsedUSD, debtUsedZWG, debtId, saleDate, synced;
+
+    SaleMapper(Cursor cursor) {
+        localId = cursor.getColumnIndexOrThrow("local_id");
+        id = cursor.getColumnIndexOrThrow("id");
+        itemId = cursor.getColumnIndexOrThrow("item_id");
+        itemName = cursor.getColumnIndexOrThrow("item_name");
+        quantity = cursor.getColumnIndexOrThrow("quantity");
+        totalUSD = cursor.getColumnIndexOrThrow("total_usd_cents");
+        totalZWG = cursor.getColumnIndexOrThrow("total_zwg_cents");
+        paymentMethod = cursor.getColumnIndexOrThrow("payment_method");
+        debtUsedUSD = cursor.getColumnIndexOrThrow("debt_used_usd_cents");
+        debtUsedZWG = cursor.getColumnIndexOrThrow("debt_used_zwg_cents");
+        debtId = cursor.getColumnIndexOrThrow("debt_id");
+        saleDate = cursor.getColumnIndexOrThrow("sale_date");
+        synced = cursor.getColumnIndexOrThrow("synced");
+    }
+
+    Sale map(Cursor cursor) {
+        Sale sale = new Sale();
+        sale.setLocalId(cursor.getString(localId));
+        sale.setId(cursor.getString(id));
+        sale.setItemId(cursor.getString(itemId));
+        sale.setItemName(cursor.getString(itemName));
+        sale.setQuantity(cursor.getInt(quantity));
+        sale.setTotalUSDCents(cursor.getLong(totalUSD));
+        sale.setTotalZWGCents(cursor.getLong(totalZWG));
+        sale.setPaymentMethod(cursor.getString(paymentMethod));
+        sale.setDebtUsedUSDCents(cursor.getLong(debtUsedUSD));
+        sale.setDebtUsedZWGCents(cursor.getLong(debtUsedZWG));
+        sale.setDebtId(cursor.getString(debtId));
+        sale.setSaleDate(cursor.getLong(saleDate));
+        sale.setSynced(cursor.getInt(synced) == 1);
+        return sale;
+    }
+}
@@ -6,42 +6,46 @@ import android.net.NetworkInfo;
 import android.os.Handler;
 import android.os.Looper;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class SyncManager {
     private Context context;
     private DatabaseHelper db;
-    private static final String BACKEND_URL = "https://shopsync-qx6o.onrender.com"; //"http://192.168.1.13:5000";
-    private ExecutorService executor;
+    private BackendClient client = BackendClient.getInstance();
     private Handler mainHandler;
 
+    // One sync at a time for the whole app, whichever screen or receiver
+    // asks: a request made while one runs joins it and gets its result
+    private static final ExecutorService syncExecutor = Executors.newSingleThreadExecutor();
+    private static final Object syncLock = new Object();
+    private static SyncRun currentRun;
+
     public interface SyncCallback {
         void onSuccess(String message);
         void onError(String error);
         void onLicenseExpired();
+
+        default void onCancelled() {
+            onError("Sync cancelled");
+        }
     }
 
     public SyncManager(Context context) {
         this.context = context;
-        this.db = new DatabaseHelper(context);
-        this.executor = Executors.newSingleThreadExecutor();
+        this.db = DatabaseHelper.getInstance(context);
         this.mainHandler = new Handler(Looper.getMainLooper());
     }
     
     public SyncManager(Context context, DatabaseHelper database) {
         this.context = context;
         this.db = database;
-        this.executor = Executors.newSingleThreadExecutor();
         this.mainHandler = new Handler(Looper.getMainLooper());
     }
 
@@ -80,7 +84,7 @@ public class SyncManager {
     }
 
     public void syncData(SyncCallback callback) {
-        if (BACKEND_URL.isEmpty()) {
+        if (!client.isConfigured()) {
             db.logSync(true);
             if (callback != null) {
                 mainHandler.post(() -> callback.onSuccess("Sync completed (offline mode)"));
@@ -112,87 +116,97 @@ public class SyncManager {
             return;
         }
 
-        executor.execute(() -> {
-            try {
-                JSONObject syncData = new JSONObject();
-                syncData.put("app_id", appId);
-                syncData.put("device_slot", db.getDeviceSlot());
-                
-                JSONArray items = new JSONArray();
-                JSONArray sales = new JSONArray();
-                JSONArray debts = new JSONArray();
-                
-                syncData.put("items", items);
-                syncData.put("sales", sales);
-                syncData.put("debts", debts);
-                
-                URL url = new URL(BACKEND_URL + "/api/shops/" + shopId + "/sync");
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setRequestProperty("X-App-Id", appId);
-                conn.setDoOutput(true);
-                
-                try (OutputStream os = conn.getOutputStream()) {
-                    os.write(syncData.toString().getBytes("UTF-8"));
-                }
-                
-                int responseCode = conn.getResponseCode();
+        SyncRun run;
+        synchronized (syncLock) {
+            if (currentRun != null) {
+                currentRun.callbacks.add(callback);
+                return;
+            }
+            run = new SyncRun(new SyncUploader(db, client, shopId, appId), new SyncPuller(db, client, shopId, appId));
+            run.callbacks.add(callback);
+            currentRun = run;
+        }
+        syncExecutor.execute(() -> runSync(run));
+    }
+
+    // Stops the running sync before its next batch or page. Batches already
+    // acknowledged stay checkpointed, so the next sync carries on from there.
+    public static void cancelSync() {
+        synchronized (syncLock) {
+            if (currentRun != null) {
+                currentRun.uploader.cancel();
+                currentRun.puller.cancel();
+            }
+        }
+    }
+
+    public static boolean isSyncRunning() {
+        synchronized (syncLock) {
+            return currentRun != null;
+        }
+    }
+
+    private void runSync(SyncRun run) {
+        SyncUploader uploader = run.uploader;
+        SyncPuller puller = run.puller;
+        try {
+            // Upload first: a pulled record with a pending local change is
+            // skipped, and the server only has the local version once it's uploaded
+            int uploadCode = uploader.upload();
+            int responseCode = uploadCode == 200 ? puller.pull() : uploadCode;
+            String errorBody = uploadCode == 200 ? puller.getErrorBody() : uploader.getErrorBody();
+            
+            if (responseCode == 200) {
+                db.logSync(true, uploader.getRawBytes(), uploader.getWireBytes());
+                finish(run, callback -> callback.onSuccess("Sync completed successfully"));
+            } else if (responseCode == 403) {
+                JSONObject errorJson = new JSONObject(errorBody);
+                boolean expired = errorJson.optBoolean("expired", false);
                 
-                if (responseCode == 200) {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-                    
-                    db.clearUnsyncedRecords();
-                    db.logSync(true);
-                    
-                    if (callback != null) {
-                        mainHandler.post(() -> callback.onSuccess("Sync completed successfully"));
-                    }
-                } else if (responseCode == 403) {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-                    
-                    JSONObject errorJson = new JSONObject(response.toString());
-                    boolean expired = errorJson.optBoolean("expired", false);
-                    
-                    if (expired) {
-                        db.clearAuthorization();
-                        if (callback != null) {
-                            mainHandler.post(() -> callback.onLicenseExpired());
-                        }
-                    } else {
-                        String errorMessage = errorJson.optString("error", "Access denied");
-                        if (callback != null) {
-                            mainHandler.post(() -> callback.onError(errorMessage));
-                        }
-                    }
+                if (expired) {
+                    db.clearAuthorization();
+                    finish(run, SyncCallback::onLicenseExpired);
                 } else {
-                    db.logSync(false);
-                    if (callback != null) {
-                        mainHandler.post(() -> callback.onError("Sync failed with code: " + responseCode));
-                    }
-                }
-                
-                conn.disconnect();
-            } catch (Exception e) {
-                e.printStackTrace();
-                db.logSync(false);
-                if (callback != null) {
-                    mainHandler.post(() -> callback.onError("Sync failed: " + e.getMessage()));
+                    String errorMessage = errorJson.optString("error", "Access denied");
+                    finish(run, callback -> callback.onError(errorMessage));
                 }
+            } else {
+                db.logSync(false, uploader.getRawBytes(), uploader.getWireBytes());
+                finish(run, callback -> callback.onError("Sync failed with code: " + responseCode));
+            }
+        } catch (CancellationException e) {
+            db.logSync(false, uploader.getRawBytes(), uploader.getWireBytes());
+            finish(run, SyncCallback::onCancelled);
+        } catch (Exception e) {
+            e.printStackTrace();
+            // Acknowledged batches stay checkpointed; the next sync resumes after them
+            db.logSync(false, uploader.getRawBytes(), uploader.getWireBytes());
+            finish(run, callback -> callback.onError("Sync failed: " + e.getMessage()));
+        }
+    }
+
+    // Ends the run, then reports its result to every request that joined it
+    private void finish(SyncRun run, Consumer<SyncCallback> result) {
+        synchronized (syncLock) {
+            currentRun = null;
+        }
+        for (SyncCallback callback : run.callbacks) {
+            if (callback != null) {
+                mainHandler.post(() -> result.accept(callback));
             }
-        });
+        }
+    }
+
+    private static class SyncRun {
+        final SyncUploader uploader;
+        final SyncPuller puller;
+        // Guarded by syncLock until the run is finished
+        final List<SyncCallback> callbacks = new ArrayList<>();
+
+        SyncRun(SyncUploader uploader, SyncPuller puller) {
+            this.uploader = uploader;
+            this.puller = puller;
+        }
     }
 
     public long getDaysSinceLastSync() {
@@ -209,7 +223,7 @@ public class SyncManager {
     }
     
     public String fetchLicenseInfo(String shopId, String appId) {
-        if (BACKEND_URL.isEmpty()) {
+        if (!client.isConfigured()) {
             return null;
         }
         
@@ -218,28 +232,9 @@ public class SyncManager {
         }
         
         try {
-            URL url = new URL(BACKEND_URL + "/api/shops/" + shopId + "/devices/" + appId + "/license-info");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("X-App-Id", appId);
-            
-            int responseCode = conn.getResponseCode();
-            
-            if (responseCode == 200) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                reader.close();
-                conn.disconnect();
-                return response.toString();
-            }
-            
-            conn.disconnect();
-            return null;
+            BackendClient.Response response = client.get(
+                    "/api/shops/" + shopId + "/devices/" + appId + "/license-info", appId);
+            return response.getCode() == 200 ? response.getBody() : null;
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -247,7 +242,7 @@ public class SyncManager {
     }
     
     public String validateProductKey(String shopId, String productKey) {
-        if (BACKEND_URL.isEmpty()) {
+        if (!client.isConfigured()) {
             return "{\"valid\": true, \"status\": \"active\"}";
         }
         
@@ -257,30 +252,7 @@ public class SyncManager {
         
         try {
             String appId = db.getAppId();
-            URL url = new URL(BACKEND_URL + "/api/shops/" + shopId + "/devices/" + appId + "/status");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("X-App-Id", appId);
-            
-            int responseCode = conn.getResponseCode();
-            BufferedReader reader;
-            
-            if (responseCode == 200) {
-                reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            } else {
-                reader = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
-            }
-            
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-            conn.disconnect();
-            
-            return response.toString();
+            return client.get("/api/shops/" + shopId + "/devices/" + appId + "/status", appId).getBody();
         } catch (Exception e) {
             e.printStackTrace();
             return "{\"error\": \"" + e.getMessage() + "\"}";
@@ -288,7 +260,7 @@ public class SyncManager {
     }
     
     public String renewLicense(String shopId, String appId, String productKey) {
-        if (BACKEND_URL.isEmpty()) {
+        if (!client.isConfigured()) {
             return "{\"error\": \"Backend not configured\"}";
         }
         
@@ -297,38 +269,11 @@ public class SyncManager {
         }
         
         try {
-            URL url = new URL(BACKEND_URL + "/api/shops/" + shopId + "/devices/" + appId + "/renew");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("X-App-Id", appId);
-            conn.setDoOutput(true);
-            
             JSONObject requestBody = new JSONObject();
             requestBody.put("product_key", productKey);
             
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(requestBody.toString().getBytes("UTF-8"));
-            }
-            
-            int responseCode = conn.getResponseCode();
-            BufferedReader reader;
-            
-            if (responseCode == 200) {
-                reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            } else {
-                reader = new BufferedReader(new InputStreamReader(conn.getErrorStream()));
-            }
-            
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-            conn.disconnect();
-            
-            return response.toString();
+            return client.post("/api/shops/" + shopId + "/devices/" + appId + "/renew", appId, requestBody)
+                    .getBody();
         } catch (Exception e) {
             e.printStackTrace();
             return "{\"error\": \"" + e.getMessage() + "\"}";
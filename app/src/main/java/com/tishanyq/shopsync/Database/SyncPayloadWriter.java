@@ -0,0 +1,150 @@
+package com.tishanyq.shopsync.Database;
+
+import android.database.Cursor;
+import android.util.JsonWriter;
+
+import com.tishanyq.shopsync.Models.Debt;
+import com.tishanyq.shopsync.Models.Item;
+import com.tishanyq.shopsync.Models.Money;
+import com.tishanyq.shopsync.Models.Sale;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+
+/**
+ * Writes one /api/shops/{id}/sync batch straight from a pending-change cursor
+ * to an OutputStream. Rows are encoded one at a time, so memory use stays the
+ * same whatever the size of the upload. A batch holds changes from a single
+ * table, in change-log order, and stops at maxRecords rows or once maxBytes
+ * have been encoded.
+ */
+class SyncPayloadWriter {
+    static final String[] TABLES = {"items", "sales", "debts"};
+
+    private final DatabaseHelper db;
+    private final int maxRecords;
+    private final long maxBytes;
+    private int rowCount;
+    private long lastWrittenId;
+    private CountingOutputStream counter;
+
+    SyncPayloadWriter(DatabaseHelper db, int maxRecords, long maxBytes) {
+        this.db = db;
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+    }
+
+    // Writes the changes of `tableName` with ids in (afterId, lastChangeId].
+    // Flushes but does not close `out`.
+    void write(OutputStream out, String appId, int deviceSlot, String tableName,
+               long afterId, long lastChangeId) throws IOException {
+        rowCount = 0;
+        lastWrittenId = afterId;
+        counter = new CountingOutputStream(out);
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(counter, "UTF-8"));
+        writer.beginObject();
+        writer.name("app_id").value(appId);
+        writer.name("device_slot").value(deviceSlot);
+
+        for (String table : TABLES) {
+            writer.name(table).beginArray();
+            if (table.equals(tableName)) {
+                writeRows(writer, table, afterId, lastChangeId);
+            }
+            writer.endArray();
+        }
+
+        writer.endObject();
+        writer.flush();
+    }
+
+    private void writeRows(JsonWriter writer, String tableName, long afterId, long lastChangeId)
+            throws IOException {
+        Cursor cursor = db.getPendingRows(tableName, afterId, lastChangeId, maxRecords);
+        try {
+            int changeId = cursor.getColumnIndexOrThrow("change_id");
+            ItemMapper itemMapper = tableName.equals("items") ? new ItemMapper(cursor) : null;
+            SaleMapper saleMapper = tableName.equals("sales") ? new SaleMapper(cursor) : null;
+            DebtMapper debtMapper = tableName.equals("debts") ? new DebtMapper(cursor) : null;
+            // Checked against bytes the encoder has already passed on, so a
+            // batch can overrun maxBytes by up to one encoder buffer (8 KB)
+            while (counter.getCount() < maxBytes && cursor.moveToNext()) {
+                if (itemMapper != null) {
+                    writeItem(writer, itemMapper.map(cursor));
+                } else if (saleMapper != null) {
+                    writeSale(writer, saleMapper.map(cursor));
+                } else {
+                    writeDebt(writer, debtMapper.map(cursor));
+                }
+                lastWrittenId = cursor.getLong(changeId);
+                rowCount++;
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    // Change-log id of the last row in the batch; the batch's afterId if it was empty
+    long getLastWrittenId() {
+        return lastWrittenId;
+    }
+
+    long getBytesWritten() {
+        return counter != null ? counter.getCount() : 0;
+    }
+
+    // Row encoders, shared with DataExporter's JSON output
+    static void writeItem(JsonWriter writer, Item item) throws IOException {
+        writer.beginObject();
+        writer.name("local_id").value(item.getLocalId());
+        writer.name("name").value(item.getName());
+        writer.name("category").value(item.getCategory());
+        writer.name("price_usd").value(Money.toDecimal(item.getPriceUSDCents()));
+        writer.name("price_zwg").value(Money.toDecimal(item.getPriceZWGCents()));
+        writer.name("quantity").value(item.getQuantity());
+        writer.name("created_at").value(item.getCreatedAt());
+        writer.endObject();
+    }
+
+    static void writeSale(JsonWriter writer, Sale sale) throws IOException {
+        writer.beginObject();
+        writer.name("local_id").value(sale.getLocalId());
+        writer.name("item_id").value(sale.getItemId());
+        writer.name("item_name").value(sale.getItemName());
+        writer.name("quantity").value(sale.getQuantity());
+        writer.name("total_usd").value(Money.toDecimal(sale.getTotalUSDCents()));
+        writer.name("total_zwg").value(Money.toDecimal(sale.getTotalZWGCents()));
+        writer.name("payment_method").value(sale.getPaymentMethod());
+        writer.name("debt_used_usd").value(Money.toDecimal(sale.getDebtUsedUSDCents()));
+        writer.name("debt_used_zwg").value(Money.toDecimal(sale.getDebtUsedZWGCents()));
+        writer.name("debt_id").value(sale.getDebtId());
+        writer.name("sale_date").value(sale.getSaleDate());
+        writer.endObject();
+    }
+
+    static void writeDebt(JsonWriter writer, Debt debt) throws IOException {
+        writer.beginObject();
+        writer.name("local_id").value(debt.getLocalId());
+        writer.name("customer_name").value(debt.getCustomerName());
+        writer.name("amount_usd").value(Money.toDecimal(debt.getAmountUSDCents()));
+        writer.name("amount_zwg").value(Money.toDecimal(debt.getAmountZWGCents()));
+        writer.name("balance_usd").value(Money.toDecimal(debt.getBalanceUSDCents()));
+        writer.name("balance_zwg").value(Money.toDecimal(debt.getBalanceZWGCents()));
+        writer.name("type").value(debt.getType());
+        writer.name("notes").value(debt.getNotes());
+        writer.name("created_at").value(debt.getCreatedAt());
+        writer.name("cleared").value(debt.isCleared());
+        writer.name("cleared_at");
+        if (debt.isCleared()) {
+            writer.value(debt.getClearedAt());
+        } else {
+            writer.nullValue();
+        }
+        writer.endObject();
+    }
+}
@@ -0,0 +1,246 @@
+package com.tishanyq.shopsync.Database;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.tishanyq.shopsync.Models.Debt;
+import com.tishanyq.shopsync.Models.Item;
+import com.tishanyq.shopsync.Models.Money;
+import com.tishanyq.shopsync.Models.Sale;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Pulls items, sales and debts written by other devices, or before a
+ * reinstall, from /api/shops/{id}/sync/changes, one page at a time after a
+ * stored token. Each page is parsed as it streams in and applied through
+ * DatabaseHelper in chunks of applyBatch rows, so a full restore never holds
+ * more than one chunk in memory. The token moves on once a whole page is
+ * applied; applying a page again after an interruption is harmless.
+ */
+class SyncPuller {
+    static final int PAGE_SIZE = 1000;
+    static final int APPLY_BATCH = 200;
+
+    private final DatabaseHelper db;
+    private final BackendClient client;
+    private final String shopId;
+    private final String appId;
+    private final int pageSize;
+    private final int applyBatch;
+
+    private final List<Item> items = new ArrayList<>();
+    private final List<Sale> sales = new ArrayList<>();
+    private final List<Debt> debts = new ArrayList<>();
+    private int rowCount;
+    private String errorBody;
+    private volatile boolean cancelled;
+
+    SyncPuller(DatabaseHelper db, BackendClient client, String shopId, String appId) {
+        this(db, client, shopId, appId, PAGE_SIZE, APPLY_BATCH);
+    }
+
+    SyncPuller(DatabaseHelper db, BackendClient client, String shopId, String appId,
+               int pageSize, int applyBatch) {
+        this.db = db;
+        this.client = client;
+        this.shopId = shopId;
+        this.appId = appId;
+        this.pageSize = pageSize;
+        this.applyBatch = applyBatch;
+    }
+
+    // Pulls every page. Returns 200 once caught up, or the first other status
+    // code, with its body in getErrorBody(). Throws CancellationException if
+    // cancel() was called.
+    int pull() throws IOException {
+        boolean hasMore = true;
+        while (hasMore) {
+            if (cancelled) {
+                throw new CancellationException("Sync pull cancelled");
+            }
+            HttpURLConnection conn = client.open("GET", "/api/shops/" + shopId +
+                    "/sync/changes?since=" + db.getSyncPullToken() + "&limit=" + pageSize, appId);
+            try {
+                int code = conn.getResponseCode();
+                InputStream body = BackendClient.decode(conn, BackendClient.bodyStream(conn, code));
+                if (code != 200) {
+                    errorBody = BackendClient.readFully(body);
+                    return code;
+                }
+                hasMore = readPage(body);
+            } catch (IOException e) {
+                conn.disconnect();
+                throw e;
+            }
+        }
+        return 200;
+    }
+
+    // Takes effect before the next page is requested
+    void cancel() {
+        cancelled = true;
+    }
+
+    // Applies one page and saves its token. Returns the page's has_more.
+    private boolean readPage(InputStream body) throws IOException {
+        long nextToken = -1;
+        boolean hasMore = false;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(body, "UTF-8"))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("changes")) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        add(readRow(reader));
+                    }
+                    reader.endArray();
+                } else if (name.equals("next_token")) {
+                    nextToken = reader.nextLong();
+                } else if (name.equals("has_more")) {
+                    hasMore = reader.nextBoolean();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        flush();
+        if (nextToken < 0) {
+            throw new IOException("Sync changes response has no next_token");
+        }
+        db.saveSyncPullToken(nextToken);
+        return hasMore;
+    }
+
+    // One change as field name to value; numbers are kept as their text
+    private static Map<String, String> readRow(JsonReader reader) throws IOException {
+        Map<String, String> row = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+            if (token == JsonToken.NULL) {
+                reader.nextNull();
+            } else if (token == JsonToken.BOOLEAN) {
+                row.put(name, reader.nextBoolean() ? "1" : "0");
+            } else if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                row.put(name, reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return row;
+    }
+
+    private void add(Map<String, String> row) {
+        String table = row.get("table");
+        if ("items".equals(table)) {
+            items.add(toItem(row));
+        } else if ("sales".equals(table)) {
+            sales.add(toSale(row));
+        } else if ("debts".equals(table)) {
+            debts.add(toDebt(row));
+        } else {
+            return;
+        }
+        rowCount++;
+        if (items.size() + sales.size() + debts.size() >= applyBatch) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (items.isEmpty() && sales.isEmpty() && debts.isEmpty()) {
+            return;
+        }
+        db.applyServerChanges(items, sales, debts);
+        items.clear();
+        sales.clear();
+        debts.clear();
+    }
+
+    private static Item toItem(Map<String, String> row) {
+        Item item = new Item();
+        item.setId(row.get("id"));
+        item.setLocalId(row.get("local_id"));
+        item.setName(row.get("name"));
+        item.setCategory(row.get("category"));
+        item.setPriceUSDCents(getCents(row, "price_usd"));
+        item.setPriceZWGCents(getCents(row, "price_zwg"));
+        item.setQuantity((int) getLong(row, "quantity"));
+        item.setCreatedAt(getLong(row, "created_at"));
+        item.setSynced(true);
+        return item;
+    }
+
+    private static Sale toSale(Map<String, String> row) {
+        Sale sale = new Sale();
+        sale.setId(row.get("id"));
+        sale.setLocalId(row.get("local_id"));
+        sale.setItemId(row.get("item_id"));
+        sale.setItemName(row.get("item_name"));
+        sale.setQuantity((int) getLong(row, "quantity"));
+        sale.setTotalUSDCents(getCents(row, "total_usd"));
+        sale.setTotalZWGCents(getCents(row, "total_zwg"));
+        sale.setPaymentMethod(row.get("payment_method"));
+        sale.setDebtUsedUSDCents(getCents(row, "debt_used_usd"));
+        sale.setDebtUsedZWGCents(getCents(row, "debt_used_zwg"));
+        sale.setDebtId(row.get("debt_id"));
+        sale.setSaleDate(getLong(row, "sale_date"));
+        sale.setSynced(true);
+        return sale;
+    }
+
+    private static Debt toDebt(Map<String, String> row) {
+        Debt debt = new Debt();
+        debt.setId(row.get("id"));
+        debt.setLocalId(row.get("local_id"));
+        debt.setCustomerName(row.get("customer_name"));
+        debt.setAmountUSDCents(getCents(row, "amount_usd"));
+        debt.setAmountZWGCents(getCents(row, "amount_zwg"));
+        debt.setType(row.get("type"));
+        debt.setNotes(row.get("notes"));
+        debt.setCreatedAt(getLong(row, "created_at"));
+        debt.setCleared(getLong(row, "cleared") != 0);
+        debt.setClearedAt(getLong(row, "cleared_at"));
+        // Debts uploaded before balances were synced: open ones still owe the full amount
+        boolean hasBalance = row.containsKey("balance_usd") || row.containsKey("balance_zwg");
+        debt.setBalanceUSDCents(hasBalance ? getCents(row, "balance_usd")
+                : debt.isCleared() ? 0 : debt.getAmountUSDCents());
+        debt.setBalanceZWGCents(hasBalance ? getCents(row, "balance_zwg")
+                : debt.isCleared() ? 0 : debt.getAmountZWGCents());
+        debt.setSynced(true);
+        return debt;
+    }
+
+    // Money arrives as decimal numbers and is parsed from the text, not via double
+    private static long getCents(Map<String, String> row, String name) {
+        String value = row.get(name);
+        return value != null ? Money.parseCents(value) : 0;
+    }
+
+    private static long getLong(Map<String, String> row, String name) {
+        String value = row.get(name);
+        return value != null ? (long) Double.parseDouble(value) : 0;
+    }
+
+    // Rows received and applied (or skipped for a pending local change)
+    int getRowCount() {
+        return rowCount;
+    }
+
+    String getErrorBody() {
+        return errorBody;
+    }
+}
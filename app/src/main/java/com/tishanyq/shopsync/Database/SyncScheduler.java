@@ -0,0 +1,124 @@
+package com.tishanyq.shopsync.Database;
+
+import java.util.Random;
+
+/**
+ * Decides when a background sync should run. A sync starts once the backlog
+ * reaches BACKLOG_THRESHOLD changes or its oldest change is MAX_BACKLOG_AGE_MS
+ * old, so uploads stay small and frequent. After a failure the next attempt
+ * waits an exponentially growing, jittered delay; regaining the network lifts
+ * that wait but keeps the failure count, so a flaky connection still backs off.
+ * Time and connectivity come in through Clock and Network so the policy runs
+ * without Android.
+ */
+public class SyncScheduler {
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    public interface Network {
+        boolean isAvailable();
+    }
+
+    static final int BACKLOG_THRESHOLD = 50;
+    static final long MAX_BACKLOG_AGE_MS = 30 * 60 * 1000L;
+    static final long BASE_BACKOFF_MS = 30 * 1000L;
+    static final long MAX_BACKOFF_MS = 6 * 60 * 60 * 1000L;
+    // Fallback while offline, for when the process dies before the network
+    // returns and no callback is left to notice
+    static final long OFFLINE_CHECK_MS = 60 * 60 * 1000L;
+
+    private final Clock clock;
+    private final Network network;
+    private final Random random;
+
+    private int failures;
+    private long retryAt;
+    private boolean running;
+
+    public SyncScheduler(Clock clock, Network network, Random random) {
+        this.clock = clock;
+        this.network = network;
+        this.random = random;
+    }
+
+    // oldestChangeAt is the timestamp of the oldest pending change, ignored
+    // when pendingChanges is 0
+    public synchronized boolean shouldSync(int pendingChanges, long oldestChangeAt) {
+        if (running || pendingChanges == 0 || !network.isAvailable()) {
+            return false;
+        }
+        long now = clock.currentTimeMillis();
+        if (now < retryAt) {
+            return false;
+        }
+        return failures > 0
+                || pendingChanges >= BACKLOG_THRESHOLD
+                || now - oldestChangeAt >= MAX_BACKLOG_AGE_MS;
+    }
+
+    // When to look at the backlog again, or 0 if no alarm is needed: nothing
+    // is pending or a sync is running (its end triggers a check). While the
+    // network is down its return triggers a check, with OFFLINE_CHECK_MS as
+    // the fallback.
+    public synchronized long nextCheckAt(int pendingChanges, long oldestChangeAt) {
+        if (pendingChanges == 0 || running) {
+            return 0;
+        }
+        long now = clock.currentTimeMillis();
+        if (!network.isAvailable()) {
+            return now + OFFLINE_CHECK_MS;
+        }
+        if (retryAt > now) {
+            return retryAt;
+        }
+        return Math.max(now, oldestChangeAt + MAX_BACKLOG_AGE_MS);
+    }
+
+    public synchronized void onSyncStarted() {
+        running = true;
+    }
+
+    public synchronized void onSyncSucceeded() {
+        running = false;
+        failures = 0;
+        retryAt = 0;
+    }
+
+    public synchronized void onSyncFailed() {
+        running = false;
+        failures++;
+        retryAt = clock.currentTimeMillis() + backoffDelay(failures);
+    }
+
+    public synchronized void onNetworkAvailable() {
+        retryAt = 0;
+    }
+
+    // Equal jitter: half the exponential delay, plus a random part of the other
+    // half, so devices that failed together don't retry together
+    long backoffDelay(int failures) {
+        long delay = BASE_BACKOFF_MS << Math.min(failures - 1, 20);
+        delay = Math.min(delay, MAX_BACKOFF_MS);
+        long half = delay / 2;
+        return half + (long) (random.nextDouble() * half);
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    public synchronized int getFailureCount() {
+        return failures;
+    }
+
+    public synchronized long getRetryAt() {
+        return retryAt;
+    }
+
+    // Restores backoff state saved before the process was stopped
+    public synchronized void restore(int failures, long retryAt) {
+        this.failures = failures;
+        this.retryAt = retryAt;
+    }
+}
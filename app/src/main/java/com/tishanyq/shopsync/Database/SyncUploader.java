@@ -0,0 +1,195 @@
+package com.tishanyq.shopsync.Database;
+
+import com.tishanyq.shopsync.Models.SyncCheckpoint;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Uploads the change log to /api/shops/{id}/sync as a series of bounded
+ * batches. Each 200 response acknowledges its batch: the batch's change-log
+ * rows are removed and a persisted checkpoint moves forward, so an upload cut
+ * off part way resumes after the last acknowledged batch instead of starting
+ * over. Resending a batch whose acknowledgement was lost is harmless: the
+ * endpoint upserts by local_id.
+ */
+class SyncUploader {
+    static final int MAX_BATCH_RECORDS = 500;
+    static final long MAX_BATCH_BYTES = 256 * 1024;
+
+    private final DatabaseHelper db;
+    private final BackendClient client;
+    private final String shopId;
+    private final String appId;
+    private final int maxRecords;
+    private final long maxBytes;
+
+    private long rawBytes;
+    private long wireBytes;
+    private int batches;
+    private String errorBody;
+    private volatile boolean cancelled;
+
+    SyncUploader(DatabaseHelper db, BackendClient client, String shopId, String appId) {
+        this(db, client, shopId, appId, MAX_BATCH_RECORDS, MAX_BATCH_BYTES);
+    }
+
+    SyncUploader(DatabaseHelper db, BackendClient client, String shopId, String appId,
+                 int maxRecords, long maxBytes) {
+        this.db = db;
+        this.client = client;
+        this.shopId = shopId;
+        this.appId = appId;
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+    }
+
+    // Sends every pending batch. Returns 200 once all are acknowledged, or the
+    // first other status code, with its body in getErrorBody(). Throws
+    // CancellationException if cancel() was called.
+    int upload() throws IOException {
+        SyncCheckpoint checkpoint = db.getSyncCheckpoint();
+        if (checkpoint == null) {
+            checkpoint = new SyncCheckpoint(SyncPayloadWriter.TABLES[0], 0, db.getLastChangeId());
+        }
+
+        for (int t = tableIndex(checkpoint.getTableName()); t < SyncPayloadWriter.TABLES.length; t++) {
+            String tableName = SyncPayloadWriter.TABLES[t];
+            if (!tableName.equals(checkpoint.getTableName())) {
+                checkpoint = new SyncCheckpoint(tableName, 0, checkpoint.getLastChangeId());
+            }
+            while (db.hasPendingRows(tableName, checkpoint.getChangeId(), checkpoint.getLastChangeId())) {
+                checkCancelled();
+                SyncPayloadWriter writer = new SyncPayloadWriter(db, maxRecords, maxBytes);
+                int code = sendBatch(writer, checkpoint);
+                if (code != 200) {
+                    return code;
+                }
+                db.acknowledgeChanges(tableName, checkpoint.getChangeId(), writer.getLastWrittenId());
+                checkpoint.setChangeId(writer.getLastWrittenId());
+                db.saveSyncCheckpoint(checkpoint);
+            }
+        }
+
+        // Nothing pending still makes one call, so the server checks the
+        // license and records the sync
+        if (batches == 0) {
+            int code = sendBatch(new SyncPayloadWriter(db, maxRecords, maxBytes), checkpoint);
+            if (code != 200) {
+                return code;
+            }
+        }
+        db.discardUnsendableChanges(checkpoint.getLastChangeId());
+        db.clearSyncCheckpoint();
+        return 200;
+    }
+
+    private int sendBatch(SyncPayloadWriter writer, SyncCheckpoint checkpoint) throws IOException {
+        boolean gzip = db.isSyncGzipEnabled();
+        long rawBefore = rawBytes;
+        long wireBefore = wireBytes;
+        HttpURLConnection conn = post(writer, checkpoint, gzip);
+        try {
+            int code = conn.getResponseCode();
+            if (gzip && (code == 400 || code == 415)) {
+                // Server may not read compressed bodies: resend plain, and keep
+                // sending plain if that is accepted. Only the resend is counted.
+                readResponse(conn, code);
+                rawBytes = rawBefore;
+                wireBytes = wireBefore;
+                conn = post(writer, checkpoint, false);
+                code = conn.getResponseCode();
+                if (code != 400 && code != 415) {
+                    db.setSyncGzipEnabled(false);
+                }
+            }
+
+            String body = readResponse(conn, code);
+            if (code == 200) {
+                batches++;
+            } else {
+                errorBody = body;
+            }
+            return code;
+        } catch (IOException e) {
+            conn.disconnect();
+            throw e;
+        }
+    }
+
+    private HttpURLConnection post(SyncPayloadWriter writer, SyncCheckpoint checkpoint, boolean gzip)
+            throws IOException {
+        HttpURLConnection conn = client.open("POST", "/api/shops/" + shopId + "/sync", appId);
+        if (gzip) {
+            conn.setRequestProperty("Content-Encoding", "gzip");
+        }
+        conn.setDoOutput(true);
+        // Body is streamed from the database cursor, so its length isn't known up front
+        conn.setChunkedStreamingMode(0);
+
+        CountingOutputStream wire = new CountingOutputStream(conn.getOutputStream());
+        OutputStream body = gzip ? new GZIPOutputStream(wire, 8192) : wire;
+        try {
+            writer.write(body, appId, db.getDeviceSlot(), checkpoint.getTableName(),
+                    checkpoint.getChangeId(), checkpoint.getLastChangeId());
+        } finally {
+            body.close();
+            rawBytes += writer.getBytesWritten();
+            wireBytes += wire.getCount();
+        }
+        return conn;
+    }
+
+    // Reads the whole response body, which also frees the connection for reuse
+    private String readResponse(HttpURLConnection conn, int code) throws IOException {
+        CountingInputStream wire = new CountingInputStream(BackendClient.bodyStream(conn, code));
+        CountingInputStream raw = new CountingInputStream(BackendClient.decode(conn, wire));
+        try {
+            return BackendClient.readFully(raw);
+        } finally {
+            rawBytes += raw.getCount();
+            wireBytes += wire.getCount();
+        }
+    }
+
+    // Takes effect before the next batch is sent
+    void cancel() {
+        cancelled = true;
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Sync upload cancelled");
+        }
+    }
+
+    private static int tableIndex(String tableName) {
+        for (int i = 0; i < SyncPayloadWriter.TABLES.length; i++) {
+            if (SyncPayloadWriter.TABLES[i].equals(tableName)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    int getBatchCount() {
+        return batches;
+    }
+
+    String getErrorBody() {
+        return errorBody;
+    }
+
+    // Request and response bytes before compression
+    long getRawBytes() {
+        return rawBytes;
+    }
+
+    // Request and response bytes as carried over the network
+    long getWireBytes() {
+        return wireBytes;
+    }
+}
@@ -0,0 +1,114 @@
+package com.tishanyq.shopsync.Models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The till's cart. Price and stock are copied from the Item when it is first
+ * added, and totals are kept as running sums, so adding or removing a unit
+ * costs the same whatever the cart holds and never touches the database.
+ * commitCheckout still re-reads stock and prices inside its transaction.
+ */
+public class Cart {
+    private final Map<String, Line> lines = new LinkedHashMap<>();
+    private long totalUSDCents;
+    private long totalZWGCents;
+    private int itemCount;
+
+    public static class Line {
+        private final String localId;
+        private final String name;
+        private final long priceUSDCents;
+        private final long priceZWGCents;
+        private final int stock;
+        private int quantity;
+
+        Line(Item item) {
+            this.localId = item.getLocalId();
+            this.name = item.getName();
+            this.priceUSDCents = item.getPriceUSDCents();
+            this.priceZWGCents = item.getPriceZWGCents();
+            this.stock = item.getQuantity();
+        }
+
+        public String getLocalId() { return localId; }
+        public String getName() { return name; }
+        public long getPriceUSDCents() { return priceUSDCents; }
+        public long getPriceZWGCents() { return priceZWGCents; }
+        public int getStock() { return stock; }
+        public int getQuantity() { return quantity; }
+    }
+
+    // Adds one unit. Returns false, leaving the cart as it was, when the cart
+    // already holds all the stock seen when the item was first added.
+    public boolean add(Item item) {
+        Line line = lines.get(item.getLocalId());
+        if (line == null) {
+            if (item.getQuantity() <= 0) {
+                return false;
+            }
+            line = new Line(item);
+            lines.put(line.localId, line);
+        } else if (line.quantity >= line.stock) {
+            return false;
+        }
+        line.quantity++;
+        totalUSDCents += line.priceUSDCents;
+        totalZWGCents += line.priceZWGCents;
+        itemCount++;
+        return true;
+    }
+
+    // Takes one unit off, dropping the line at zero. Returns false if the
+    // item isn't in the cart.
+    public boolean removeOne(String localId) {
+        Line line = lines.get(localId);
+        if (line == null) {
+            return false;
+        }
+        line.quantity--;
+        if (line.quantity == 0) {
+            lines.remove(localId);
+        }
+        itemCount--;
+        totalUSDCents -= line.priceUSDCents;
+        totalZWGCents -= line.priceZWGCents;
+        return true;
+    }
+
+    public void clear() {
+        lines.clear();
+        totalUSDCents = 0;
+        totalZWGCents = 0;
+        itemCount = 0;
+    }
+
+    public boolean isEmpty() {
+        return itemCount == 0;
+    }
+
+    public int getQuantity(String localId) {
+        Line line = lines.get(localId);
+        return line != null ? line.quantity : 0;
+    }
+
+    // Item local id to quantity, in the order items were first added
+    public Map<String, Integer> getQuantities() {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (Line line : lines.values()) {
+            quantities.put(line.localId, line.quantity);
+        }
+        return quantities;
+    }
+
+    public List<Line> getLines() {
+        return Collections.unmodifiableList(new ArrayList<>(lines.values()));
+    }
+
+    public long getTotalUSDCents() { return totalUSDCents; }
+    public long getTotalZWGCents() { return totalZWGCents; }
+    public int getItemCount() { return itemCount; }
+}
@@ -0,0 +1,33 @@
+package com.tishanyq.shopsync.Models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CheckoutResult {
+    private boolean success;
+    private String error;
+    private List<Sale> sales = new ArrayList<>();
+    private long totalUSDCents;
+    private long totalZWGCents;
+    private int itemCount;
+
+    public static CheckoutResult failed(String error) {
+        CheckoutResult result = new CheckoutResult();
+        result.error = error;
+        return result;
+    }
+
+    // Getters and Setters
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public List<Sale> getSales() { return sales; }
+    public void setSales(List<Sale> sales) { this.sales = sales; }
+    public long getTotalUSDCents() { return totalUSDCents; }
+    public void setTotalUSDCents(long totalUSDCents) { this.totalUSDCents = totalUSDCents; }
+    public long getTotalZWGCents() { return totalZWGCents; }
+    public void setTotalZWGCents(long totalZWGCents) { this.totalZWGCents = totalZWGCents; }
+    public int getItemCount() { return itemCount; }
+    public void setItemCount(int itemCount) { this.itemCount = itemCount; }
+}
@@ -4,8 +4,10 @@ public class Debt {
     private String id;
     private String localId;
     private String customerName;
-    private double amountUSD;
-    private double amountZWG;
+    private long amountUSDCents;
+    private long amountZWGCents;
+    private long balanceUSDCents; // Outstanding amount, maintained by the debt ledger
+    private long balanceZWGCents;
     private String type; // "CHANGE_OWED" or "CREDIT_USED"
     private String notes;
     private long createdAt;
@@ -13,18 +15,21 @@ public class Debt {
     private long clearedAt;
     private boolean synced;
 
+    // No localId: for rows read back from storage, which set their own
     public Debt() {
-        this.localId = "DEBT_" + System.currentTimeMillis();
         this.createdAt = System.currentTimeMillis();
         this.cleared = false;
         this.synced = false;
     }
 
-    public Debt(String customerName, double amountUSD, double amountZWG, String type, String notes) {
+    public Debt(String customerName, long amountUSDCents, long amountZWGCents, String type, String notes) {
         this();
+        this.localId = LocalIds.next("DEBT_");
         this.customerName = customerName;
-        this.amountUSD = amountUSD;
-        this.amountZWG = amountZWG;
+        this.amountUSDCents = amountUSDCents;
+        this.amountZWGCents = amountZWGCents;
+        this.balanceUSDCents = amountUSDCents;
+        this.balanceZWGCents = amountZWGCents;
         this.type = type;
         this.notes = notes;
     }
@@ -36,10 +41,14 @@ public class Debt {
     public void setLocalId(String localId) { this.localId = localId; }
     public String getCustomerName() { return customerName; }
     public void setCustomerName(String customerName) { this.customerName = customerName; }
-    public double getAmountUSD() { return amountUSD; }
-    public void setAmountUSD(double amountUSD) { this.amountUSD = amountUSD; }
-    public double getAmountZWG() { return amountZWG; }
-    public void setAmountZWG(double amountZWG) { this.amountZWG = amountZWG; }
+    public long getAmountUSDCents() { return amountUSDCents; }
+    public void setAmountUSDCents(long amountUSDCents) { this.amountUSDCents = amountUSDCents; }
+    public long getAmountZWGCents() { return amountZWGCents; }
+    public void setAmountZWGCents(long amountZWGCents) { this.amountZWGCents = amountZWGCents; }
+    public long getBalanceUSDCents() { return balanceUSDCents; }
+    public void setBalanceUSDCents(long balanceUSDCents) { this.balanceUSDCents = balanceUSDCents; }
+    public long getBalanceZWGCents() { return balanceZWGCents; }
+    public void setBalanceZWGCents(long balanceZWGCents) { this.balanceZWGCents = balanceZWGCents; }
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
     public String getNotes() { return notes; }
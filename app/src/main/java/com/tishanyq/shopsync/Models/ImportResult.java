@@ -0,0 +1,33 @@
+package com.tishanyq.shopsync.Models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportResult {
+    public static final int MAX_ERRORS = 100;
+
+    private int rowsRead;
+    private int inserted;
+    private int updated;
+    private int rejected;
+    private List<String> errors = new ArrayList<>(); // First MAX_ERRORS only
+
+    public void addError(int line, String message) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("Line " + line + ": " + message);
+        }
+    }
+
+    // Getters and Setters
+    public int getRowsRead() { return rowsRead; }
+    public void setRowsRead(int rowsRead) { this.rowsRead = rowsRead; }
+    public int getInserted() { return inserted; }
+    public void setInserted(int inserted) { this.inserted = inserted; }
+    public int getUpdated() { return updated; }
+    public void setUpdated(int updated) { this.updated = updated; }
+    public int getRejected() { return rejected; }
+    public void setRejected(int rejected) { this.rejected = rejected; }
+    public List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+}
@@ -5,24 +5,25 @@ public class Item {
     private String localId;
     private String name;
     private String category;
-    private double priceUSD;
-    private double priceZWG;
+    private long priceUSDCents;
+    private long priceZWGCents;
     private int quantity;
     private boolean synced;
     private long createdAt;
 
+    // No localId: for rows read back from storage, which set their own
     public Item() {
-        this.localId = "LOCAL_" + System.currentTimeMillis();
         this.createdAt = System.currentTimeMillis();
         this.synced = false;
     }
 
-    public Item(String name, String category, double priceUSD, double priceZWG, int quantity) {
+    public Item(String name, String category, long priceUSDCents, long priceZWGCents, int quantity) {
         this();
+        this.localId = LocalIds.next("LOCAL_");
         this.name = name;
         this.category = category;
-        this.priceUSD = priceUSD;
-        this.priceZWG = priceZWG;
+        this.priceUSDCents = priceUSDCents;
+        this.priceZWGCents = priceZWGCents;
         this.quantity = quantity;
     }
 
@@ -35,10 +36,10 @@ public class Item {
     public void setName(String name) { this.name = name; }
     public String getCategory() { return category; }
     public void setCategory(String category) { this.category = category; }
-    public double getPriceUSD() { return priceUSD; }
-    public void setPriceUSD(double priceUSD) { this.priceUSD = priceUSD; }
-    public double getPriceZWG() { return priceZWG; }
-    public void setPriceZWG(double priceZWG) { this.priceZWG = priceZWG; }
+    public long getPriceUSDCents() { return priceUSDCents; }
+    public void setPriceUSDCents(long priceUSDCents) { this.priceUSDCents = priceUSDCents; }
+    public long getPriceZWGCents() { return priceZWGCents; }
+    public void setPriceZWGCents(long priceZWGCents) { this.priceZWGCents = priceZWGCents; }
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
     public boolean isSynced() { return synced; }
@@ -0,0 +1,100 @@
+package com.tishanyq.shopsync.Models;
+
+/**
+ * Local ids for items, sales and debts: a prefix followed by the time, the
+ * device slot and a sequence number, each as fixed-width base 36, e.g.
+ * "SALE_LQ3K8Z0A1010003F". Ids from one device never repeat, even within a
+ * millisecond or after the clock is set back, because the sequence only
+ * moves forward, across restarts too. Within one process they also sort in
+ * creation order; after a restart with the clock set back, new ids can sort
+ * before older ones. The server gives each device of a shop its own slot, so
+ * ids from different tills can't meet either.
+ *
+ * The sequence is reserved from the Store a block at a time, so persisting
+ * it costs one write per BLOCK_SIZE ids; numbers left in a block when the
+ * process dies are skipped, never reused.
+ */
+public final class LocalIds {
+    static final int BLOCK_SIZE = 1000;
+    private static final int TIME_WIDTH = 9;      // milliseconds, good until the year 5188
+    private static final int SLOT_WIDTH = 2;      // 1296 devices per shop
+    private static final int SEQUENCE_WIDTH = 5;  // wraps after ~60M ids
+    private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    public interface Store {
+        int getDeviceSlot();
+
+        // Returns the first number of a fresh block of size numbers, having
+        // saved the end of the block before returning
+        long reserveBlock(int size);
+    }
+
+    private static final LocalIds instance = new LocalIds(new MemoryStore());
+
+    private Store store;
+    private long nextSequence;
+    private long blockEnd;
+    private long lastTime;
+
+    LocalIds(Store store) {
+        this.store = store;
+    }
+
+    public static String next(String prefix) {
+        return instance.generate(prefix, System.currentTimeMillis());
+    }
+
+    // Installed by DatabaseHelper so sequence blocks survive restarts. Until
+    // then blocks come from memory.
+    public static void setStore(Store store) {
+        instance.replaceStore(store);
+    }
+
+    synchronized void replaceStore(Store store) {
+        this.store = store;
+        blockEnd = nextSequence;
+    }
+
+    synchronized String generate(String prefix, long now) {
+        if (nextSequence == blockEnd) {
+            nextSequence = store.reserveBlock(BLOCK_SIZE);
+            blockEnd = nextSequence + BLOCK_SIZE;
+        }
+        // Never step back in time, so ids from this process keep sorting in
+        // creation order
+        lastTime = Math.max(lastTime, now);
+
+        char[] id = new char[prefix.length() + TIME_WIDTH + SLOT_WIDTH + SEQUENCE_WIDTH];
+        prefix.getChars(0, prefix.length(), id, 0);
+        int end = prefix.length();
+        end = appendBase36(id, end, lastTime, TIME_WIDTH);
+        end = appendBase36(id, end, store.getDeviceSlot(), SLOT_WIDTH);
+        appendBase36(id, end, nextSequence++, SEQUENCE_WIDTH);
+        return new String(id);
+    }
+
+    // Writes the low width base-36 digits of value, zero padded
+    private static int appendBase36(char[] id, int start, long value, int width) {
+        for (int i = start + width - 1; i >= start; i--) {
+            id[i] = DIGITS[(int) Math.floorMod(value, 36L)];
+            value = Math.floorDiv(value, 36L);
+        }
+        return start + width;
+    }
+
+    private static class MemoryStore implements Store {
+        private long next;
+
+        @Override
+        public int getDeviceSlot() {
+            return 0;
+        }
+
+        @Override
+        public long reserveBlock(int size) {
+            long start = next;
+            next += size;
+            return start;
+        }
+    }
+}
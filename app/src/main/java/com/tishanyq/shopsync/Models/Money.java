@@ -0,0 +1,46 @@
+package com.tishanyq.shopsync.Models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts in both currencies are held as a long count of cents, so sums and
+ * comparisons are exact. These helpers convert at the edges only: what the
+ * user types, what the screen shows and the decimal numbers in sync JSON.
+ */
+public final class Money {
+
+    private Money() {}
+
+    // Decimal text such as "12.5", "-3.10" or "1e2", rounded half up to the
+    // cent. Throws NumberFormatException for anything else.
+    public static long parseCents(String text) {
+        try {
+            return new BigDecimal(text.trim()).setScale(2, RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    // Nearest cent of an amount that is already a double
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    // Exact two-place decimal, e.g. 1250 -> 12.50, for JSON numbers
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    // "12.50", "-0.05"
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        return (cents < 0 ? "-" : "") + abs / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -0,0 +1,35 @@
+package com.tishanyq.shopsync.Models;
+
+public class Payment {
+    private String method;
+    private String debtId; // Debt being drawn down, if any
+    private long debtUsedUSDCents;
+    private long debtUsedZWGCents;
+
+    public Payment() {
+        this.method = "CASH";
+    }
+
+    public static Payment cash() {
+        return new Payment();
+    }
+
+    public static Payment debt(String debtId, long debtUsedUSDCents, long debtUsedZWGCents) {
+        Payment payment = new Payment();
+        payment.method = "DEBT";
+        payment.debtId = debtId;
+        payment.debtUsedUSDCents = debtUsedUSDCents;
+        payment.debtUsedZWGCents = debtUsedZWGCents;
+        return payment;
+    }
+
+    // Getters and Setters
+    public String getMethod() { return method; }
+    public void setMethod(String method) { this.method = method; }
+    public String getDebtId() { return debtId; }
+    public void setDebtId(String debtId) { this.debtId = debtId; }
+    public long getDebtUsedUSDCents() { return debtUsedUSDCents; }
+    public void setDebtUsedUSDCents(long debtUsedUSDCents) { this.debtUsedUSDCents = debtUsedUSDCents; }
+    public long getDebtUsedZWGCents() { return debtUsedZWGCents; }
+    public void setDebtUsedZWGCents(long debtUsedZWGCents) { this.debtUsedZWGCents = debtUsedZWGCents; }
+}
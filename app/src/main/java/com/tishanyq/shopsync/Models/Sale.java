@@ -6,28 +6,29 @@ public class Sale {
     private String itemId;
     private String itemName;
     private int quantity;
-    private double totalUSD;
-    private double totalZWG;
+    private long totalUSDCents;
+    private long totalZWGCents;
     private String paymentMethod = "CASH";
-    private double debtUsedUSD = 0;
-    private double debtUsedZWG = 0;
+    private long debtUsedUSDCents = 0;
+    private long debtUsedZWGCents = 0;
     private String debtId; // Link to debt record if used
     private long saleDate;
     private boolean synced;
 
+    // No localId: for rows read back from storage, which set their own
     public Sale() {
-        this.localId = "SALE_" + System.currentTimeMillis();
         this.saleDate = System.currentTimeMillis();
         this.synced = false;
     }
 
-    public Sale(String itemId, String itemName, int quantity, double totalUSD, double totalZWG) {
+    public Sale(String itemId, String itemName, int quantity, long totalUSDCents, long totalZWGCents) {
         this();
+        this.localId = LocalIds.next("SALE_");
         this.itemId = itemId;
         this.itemName = itemName;
         this.quantity = quantity;
-        this.totalUSD = totalUSD;
-        this.totalZWG = totalZWG;
+        this.totalUSDCents = totalUSDCents;
+        this.totalZWGCents = totalZWGCents;
     }
 
     // Getters and Setters
@@ -41,16 +42,16 @@ public class Sale {
     public void setItemName(String itemName) { this.itemName = itemName; }
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
-    public double getTotalUSD() { return totalUSD; }
-    public void setTotalUSD(double totalUSD) { this.totalUSD = totalUSD; }
-    public double getTotalZWG() { return totalZWG; }
-    public void setTotalZWG(double totalZWG) { this.totalZWG = totalZWG; }
+    public long getTotalUSDCents() { return totalUSDCents; }
+    public void setTotalUSDCents(long totalUSDCents) { this.totalUSDCents = totalUSDCents; }
+    public long getTotalZWGCents() { return totalZWGCents; }
+    public void setTotalZWGCents(long totalZWGCents) { this.totalZWGCents = totalZWGCents; }
     public String getPaymentMethod() { return paymentMethod; }
     public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
-    public double getDebtUsedUSD() { return debtUsedUSD; }
-    public void setDebtUsedUSD(double debtUsedUSD) { this.debtUsedUSD = debtUsedUSD; }
-    public double getDebtUsedZWG() { return debtUsedZWG; }
-    public void setDebtUsedZWG(double debtUsedZWG) { this.debtUsedZWG = debtUsedZWG; }
+    public long getDebtUsedUSDCents() { return debtUsedUSDCents; }
+    public void setDebtUsedUSDCents(long debtUsedUSDCents) { this.debtUsedUSDCents = debtUsedUSDCents; }
+    public long getDebtUsedZWGCents() { return debtUsedZWGCents; }
+    public void setDebtUsedZWGCents(long debtUsedZWGCents) { this.debtUsedZWGCents = debtUsedZWGCents; }
     public String getDebtId() { return debtId; }
     public void setDebtId(String debtId) { this.debtId = debtId; }
     public long getSaleDate() { return saleDate; }
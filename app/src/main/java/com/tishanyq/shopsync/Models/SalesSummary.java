@@ -0,0 +1,23 @@
+package com.tishanyq.shopsync.Models;
+
+public class SalesSummary {
+    private long totalUSDCents;
+    private long totalZWGCents;
+    private int transactions;
+
+    public SalesSummary() {}
+
+    public SalesSummary(long totalUSDCents, long totalZWGCents, int transactions) {
+        this.totalUSDCents = totalUSDCents;
+        this.totalZWGCents = totalZWGCents;
+        this.transactions = transactions;
+    }
+
+    // Getters and Setters
+    public long getTotalUSDCents() { return totalUSDCents; }
+    public void setTotalUSDCents(long totalUSDCents) { this.totalUSDCents = totalUSDCents; }
+    public long getTotalZWGCents() { return totalZWGCents; }
+    public void setTotalZWGCents(long totalZWGCents) { this.totalZWGCents = totalZWGCents; }
+    public int getTransactions() { return transactions; }
+    public void setTransactions(int transactions) { this.transactions = transactions; }
+}
@@ -0,0 +1,21 @@
+package com.tishanyq.shopsync.Models;
+
+public class SyncCheckpoint {
+    private String tableName;  // Table whose batches are being uploaded
+    private long changeId;     // Last change-log id the server acknowledged in that table
+    private long lastChangeId; // Change-log id the upload was pinned at when it started
+
+    public SyncCheckpoint(String tableName, long changeId, long lastChangeId) {
+        this.tableName = tableName;
+        this.changeId = changeId;
+        this.lastChangeId = lastChangeId;
+    }
+
+    // Getters and Setters
+    public String getTableName() { return tableName; }
+    public void setTableName(String tableName) { this.tableName = tableName; }
+    public long getChangeId() { return changeId; }
+    public void setChangeId(long changeId) { this.changeId = changeId; }
+    public long getLastChangeId() { return lastChangeId; }
+    public void setLastChangeId(long lastChangeId) { this.lastChangeId = lastChangeId; }
+}
@@ -0,0 +1,23 @@
+package com.tishanyq.shopsync.Models;
+
+public class TopItem {
+    private String itemId;
+    private String itemName;
+    private int quantitySold;
+
+    public TopItem() {}
+
+    public TopItem(String itemId, String itemName, int quantitySold) {
+        this.itemId = itemId;
+        this.itemName = itemName;
+        this.quantitySold = quantitySold;
+    }
+
+    // Getters and Setters
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+    public String getItemName() { return itemName; }
+    public void setItemName(String itemName) { this.itemName = itemName; }
+    public int getQuantitySold() { return quantitySold; }
+    public void setQuantitySold(int quantitySold) { this.quantitySold = quantitySold; }
+}
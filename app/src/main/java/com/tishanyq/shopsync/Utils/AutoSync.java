@@ -0,0 +1,164 @@
+package com.tishanyq.shopsync.Utils;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.tishanyq.shopsync.Database.BackendClient;
+import com.tishanyq.shopsync.Database.DatabaseHelper;
+import com.tishanyq.shopsync.Database.SyncManager;
+import com.tishanyq.shopsync.Database.SyncScheduler;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs sync in the background as SyncScheduler sees fit. The backlog is
+ * checked shortly after each change, whenever the network comes back, and
+ * at the time SyncScheduler asks for, through an inexact alarm that reaches
+ * SyncAlarmReceiver even when the app isn't open. The alarm stays set while
+ * offline, as a fallback in case the process dies before the network returns.
+ */
+public class AutoSync {
+    // Lets a burst of changes (one checkout) land before the backlog is counted
+    private static final long CHANGE_DEBOUNCE_MS = 5000;
+    private static final Runnable NOTHING = () -> { };
+
+    private static AutoSync instance;
+
+    private final Context context;
+    private final DatabaseHelper db;
+    private final SyncManager syncManager;
+    private final SyncScheduler scheduler;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+    private final Runnable checkRunnable = this::checkInBackground;
+    private boolean started;
+
+    public static synchronized AutoSync getInstance(Context context) {
+        if (instance == null) {
+            instance = new AutoSync(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AutoSync(Context context) {
+        this.context = context;
+        this.db = DatabaseHelper.getInstance(context);
+        this.syncManager = new SyncManager(context, db);
+        this.scheduler = new SyncScheduler(System::currentTimeMillis, syncManager::isNetworkAvailable, new Random());
+        this.scheduler.restore(db.getSyncFailureCount(), db.getSyncRetryAt());
+        this.executor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    // Starts watching changes and connectivity for the life of the process
+    public void start() {
+        start(NOTHING);
+    }
+
+    // As start(), calling onDone on a background thread once the first check
+    // and any sync it starts are over and the next alarm is set
+    public synchronized void start(Runnable onDone) {
+        if (!started) {
+            started = true;
+            db.setOnChangeLoggedListener(this::onChangeLogged);
+            ConnectivityManager cm = (ConnectivityManager)
+                    context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    scheduler.onNetworkAvailable();
+                    checkInBackground();
+                }
+            });
+        }
+        checkInBackground(onDone);
+    }
+
+    private void onChangeLogged() {
+        mainHandler.removeCallbacks(checkRunnable);
+        mainHandler.postDelayed(checkRunnable, CHANGE_DEBOUNCE_MS);
+    }
+
+    public void checkInBackground() {
+        checkInBackground(NOTHING);
+    }
+
+    private void checkInBackground(Runnable onDone) {
+        executor.execute(() -> check(onDone));
+    }
+
+    private void check(Runnable onDone) {
+        if (!canSync()) {
+            onDone.run();
+            return;
+        }
+        int pending = db.getPendingChangeCount();
+        long oldest = db.getOldestPendingChangeTime();
+        if (!scheduler.shouldSync(pending, oldest)) {
+            // A running sync checks again when it ends, so leave the alarm be
+            if (!scheduler.isRunning()) {
+                scheduleCheck(scheduler.nextCheckAt(pending, oldest));
+            }
+            onDone.run();
+            return;
+        }
+
+        scheduler.onSyncStarted();
+        syncManager.syncData(new SyncManager.SyncCallback() {
+            @Override
+            public void onSuccess(String message) {
+                scheduler.onSyncSucceeded();
+                saveBackoff();
+                // Picks up anything logged while the upload ran
+                checkInBackground(onDone);
+            }
+
+            @Override
+            public void onError(String error) {
+                onFailed(onDone);
+            }
+
+            @Override
+            public void onLicenseExpired() {
+                onFailed(onDone);
+            }
+        });
+    }
+
+    private void onFailed(Runnable onDone) {
+        scheduler.onSyncFailed();
+        saveBackoff();
+        checkInBackground(onDone);
+    }
+
+    private boolean canSync() {
+        return BackendClient.getInstance().isConfigured()
+                && db.getAppId() != null
+                && db.getStoredShopId() != null
+                && !db.isLicenseExpired();
+    }
+
+    private void saveBackoff() {
+        db.saveSyncBackoff(scheduler.getFailureCount(), scheduler.getRetryAt());
+    }
+
+    private void scheduleCheck(long at) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent intent = PendingIntent.getBroadcast(context, 0,
+                new Intent(context, SyncAlarmReceiver.class),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        if (at == 0) {
+            alarmManager.cancel(intent);
+        } else {
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, at, intent);
+        }
+    }
+}
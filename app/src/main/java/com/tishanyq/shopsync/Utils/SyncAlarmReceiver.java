@@ -8,22 +8,22 @@ import android.app.NotificationManager;
 import android.os.Build;
 import androidx.core.app.NotificationCompat;
 import com.tishanyq.shopsync.Database.SyncManager;
-import java.util.Calendar;
 
-public class SyncReminderReceiver extends BroadcastReceiver {
+public class SyncAlarmReceiver extends BroadcastReceiver {
     private static final String CHANNEL_ID = "sync_reminder";
+    // Background sync hasn't got through for this long, so ask the owner
+    private static final long REMINDER_AFTER_DAYS = 3;
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        Calendar calendar = Calendar.getInstance();
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-
-        // Monday = 2, Wednesday = 4, Friday = 6
-        if (dayOfWeek == Calendar.MONDAY || dayOfWeek == Calendar.WEDNESDAY || dayOfWeek == Calendar.FRIDAY) {
-            SyncManager syncManager = new SyncManager(context);
-            if (syncManager.getDaysSinceLastSync() > 0) {
-                showSyncNotification(context);
-            }
+        // Keeps the process alive until the check, and any sync it starts,
+        // has finished and set the next alarm
+        PendingResult result = goAsync();
+        AutoSync.getInstance(context).start(result::finish);
+
+        SyncManager syncManager = new SyncManager(context);
+        if (syncManager.getDaysSinceLastSync() >= REMINDER_AFTER_DAYS) {
+            showSyncNotification(context);
         }
     }
 
@@ -40,7 +40,7 @@ public class SyncReminderReceiver extends BroadcastReceiver {
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
                 .setSmallIcon(android.R.drawable.ic_dialog_info)
                 .setContentTitle("FrostSync POS")
-                .setContentText("Please sync your data to avoid data loss")
+                .setContentText("Data hasn't synced for a while. Connect to the internet to sync.")
                 .setPriority(NotificationCompat.PRIORITY_DEFAULT)
                 .setAutoCancel(true);
 
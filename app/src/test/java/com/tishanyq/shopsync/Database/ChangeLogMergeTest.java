@@ -0,0 +1,37 @@
+package com.tishanyq.shopsync.Database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChangeLogMergeTest {
+
+    @Test
+    public void firstChangeIsKept() {
+        assertEquals("INSERT", DatabaseHelper.mergeChange(null, "INSERT"));
+        assertEquals("UPDATE", DatabaseHelper.mergeChange(null, "UPDATE"));
+        assertEquals("DELETE", DatabaseHelper.mergeChange(null, "DELETE"));
+    }
+
+    @Test
+    public void updatesFoldIntoPendingInsert() {
+        String action = "INSERT";
+        for (int i = 0; i < 300; i++) {
+            action = DatabaseHelper.mergeChange(action, "UPDATE");
+        }
+        assertEquals("INSERT", action);
+    }
+
+    @Test
+    public void insertThenDeleteCancelsOut() {
+        assertNull(DatabaseHelper.mergeChange("INSERT", "DELETE"));
+        assertNull(DatabaseHelper.mergeChange(DatabaseHelper.mergeChange("INSERT", "UPDATE"), "DELETE"));
+    }
+
+    @Test
+    public void updatesAndDeletesOfSyncedRecords() {
+        assertEquals("UPDATE", DatabaseHelper.mergeChange("UPDATE", "UPDATE"));
+        assertEquals("DELETE", DatabaseHelper.mergeChange("UPDATE", "DELETE"));
+        assertEquals("UPDATE", DatabaseHelper.mergeChange("DELETE", "INSERT"));
+    }
+}
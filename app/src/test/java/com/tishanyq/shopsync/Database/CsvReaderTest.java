@@ -0,0 +1,67 @@
+package com.tishanyq.shopsync.Database;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class CsvReaderTest {
+
+    private static CsvReader reader(String text, char delimiter) {
+        return new CsvReader(new StringReader(text), delimiter);
+    }
+
+    @Test
+    public void readsPlainRecords() throws IOException {
+        CsvReader csv = reader("name,price_usd\nBread,1.50\n", ',');
+        assertArrayEquals(new String[]{"name", "price_usd"}, csv.readRecord());
+        assertArrayEquals(new String[]{"Bread", "1.50"}, csv.readRecord());
+        assertEquals(2, csv.getRecordLine());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    public void handlesQuotesAndEscapedQuotes() throws IOException {
+        CsvReader csv = reader("\"Sugar, 2kg\",\"12\"\" pipe\",3\n", ',');
+        assertArrayEquals(new String[]{"Sugar, 2kg", "12\" pipe", "3"}, csv.readRecord());
+    }
+
+    @Test
+    public void keepsLineBreaksInsideQuotes() throws IOException {
+        CsvReader csv = reader("a,\"first\nsecond\"\nb,c\n", ',');
+        assertArrayEquals(new String[]{"a", "first\nsecond"}, csv.readRecord());
+        assertArrayEquals(new String[]{"b", "c"}, csv.readRecord());
+        assertEquals(3, csv.getRecordLine());
+    }
+
+    @Test
+    public void acceptsCrLfAndSkipsBlankLines() throws IOException {
+        CsvReader csv = reader("a,b\r\n\r\n\nc,d\r\ne,", ',');
+        assertArrayEquals(new String[]{"a", "b"}, csv.readRecord());
+        assertArrayEquals(new String[]{"c", "d"}, csv.readRecord());
+        assertEquals(4, csv.getRecordLine());
+        assertArrayEquals(new String[]{"e", ""}, csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    public void readsTabSeparated() throws IOException {
+        assertEquals('\t', CsvReader.detectDelimiter("name\tprice_usd"));
+        assertEquals(',', CsvReader.detectDelimiter("name,price_usd"));
+        CsvReader csv = reader("Rice, long grain\t4.00\n", '\t');
+        assertArrayEquals(new String[]{"Rice, long grain", "4.00"}, csv.readRecord());
+    }
+
+    @Test
+    public void unclosedQuoteFails() {
+        CsvReader csv = reader("a,\"never closed\n", ',');
+        try {
+            csv.readRecord();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("line 1"));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.tishanyq.shopsync.Database;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Exports one million synthetic sales as CSV, plain and gzipped, through the
+ * same paging loop DataExporter runs against SQLite. Pages are generated on
+ * demand from the keyset the exporter passes back, so only one page exists
+ * at a time, and output goes to a counting sink. Prints rows/second, bytes
+ * written and heap retained. JSON goes through android.util.JsonWriter, which
+ * isn't available on the JVM, so it is left to the instrumented tests.
+ *
+ * Skipped unless run with -Pbenchmarks=true, which sets the "benchmarks"
+ * system property for unit tests. DataExporterCsvTest checks correctness.
+ */
+public class DataExporterBenchmark {
+    private static final int ROWS = 1_000_000;
+
+    @Test
+    public void benchmarkMillionSalesExport() throws IOException {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+
+        // Warm up
+        export(100_000, false);
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        CountingSink plain = export(ROWS, false);
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        CountingSink gzip = export(ROWS, true);
+
+        assertEquals(ROWS + 1, plain.lines);
+        System.out.printf("CSV:      %,.0f rows/s, %,d bytes%n", rowsPerSecond(plain.nanos), plain.bytes);
+        System.out.printf("CSV gzip: %,.0f rows/s, %,d bytes%n", rowsPerSecond(gzip.nanos), gzip.bytes);
+        System.out.printf("Heap retained after plain export: %,d KB%n", (heapAfter - heapBefore) / 1024);
+    }
+
+    private static CountingSink export(int rows, boolean gzip) throws IOException {
+        CountingSink sink = new CountingSink();
+        long start = System.nanoTime();
+        int written = new DataExporter(null).export(DataExporter.Dataset.SALES, DataExporter.Format.CSV,
+                new SyntheticSales(rows), gzip, sink, null);
+        sink.nanos = System.nanoTime() - start;
+        assertEquals(rows, written);
+        return sink;
+    }
+
+    private static double rowsPerSecond(long nanos) {
+        return ROWS / (nanos / 1e9);
+    }
+
+    private static class CountingSink extends OutputStream {
+        long bytes;
+        long lines;
+        long nanos;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.tishanyq.shopsync.Database;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs DataExporter's paging loop and CSV encoding over synthetic sales on
+ * the JVM, with a page size small enough to cross page boundaries.
+ */
+public class DataExporterCsvTest {
+
+    @Test
+    public void exportsEveryRowOnceAcrossPages() throws IOException {
+        for (int rows : new int[]{0, 9, 10, 25}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int written = new DataExporter(null, 10).export(DataExporter.Dataset.SALES,
+                    DataExporter.Format.CSV, new SyntheticSales(rows), false, out, null);
+            assertEquals(rows, written);
+
+            String[] lines = out.toString("UTF-8").split("\r\n");
+            assertEquals(rows + 1, lines.length);
+            assertTrue(lines[0].startsWith("local_id,item_id,item_name"));
+            for (int i = 0; i < rows; i++) {
+                assertTrue(lines[i + 1].startsWith(SyntheticSales.localId(i) + ","));
+            }
+        }
+    }
+
+    @Test
+    public void quotesFieldsAndGzipsOutput() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DataExporter(null, 10).export(DataExporter.Dataset.SALES, DataExporter.Format.CSV,
+                new SyntheticSales(3), true, out, null);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), "UTF-8"));
+        CsvReader csv = new CsvReader(reader, ',');
+        assertEquals("total_usd", csv.readRecord()[4]);
+        String[] first = csv.readRecord();
+        assertEquals("Item 0, \"large\"", first[2]);
+        assertEquals("1.50", first[4]);
+        assertEquals("", first[9]);
+        assertEquals("DEBT_1", csv.readRecord()[9]);
+        assertNotNull(csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+}
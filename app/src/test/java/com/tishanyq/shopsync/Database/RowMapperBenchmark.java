@@ -0,0 +1,127 @@
+package com.tishanyq.shopsync.Database;
+
+import android.database.Cursor;
+
+import com.tishanyq.shopsync.Models.Sale;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares per-row getColumnIndexOrThrow lookups (the old cursorToSale) with
+ * SaleMapper, which resolves indices once per cursor. Runs on the JVM against
+ * a synthetic 50k-row sales cursor and prints rows/second for both.
+ *
+ * The timing is skipped unless run with -Pbenchmarks=true;
+ * mapperMatchesLegacyMapping always runs.
+ */
+public class RowMapperBenchmark {
+    private static final String[] SALE_COLUMNS = {
+            "local_id", "id", "item_id", "item_name", "quantity", "total_usd_cents", "total_zwg_cents",
+            "payment_method", "debt_used_usd_cents", "debt_used_zwg_cents", "debt_id", "sale_date", "synced"
+    };
+    private static final int ROWS = 50_000;
+    private static final int ROUNDS = 10;
+
+    @Test
+    public void mapperMatchesLegacyMapping() {
+        SyntheticCursor cursor = salesCursor(100);
+        SaleMapper mapper = new SaleMapper(cursor);
+        while (cursor.moveToNext()) {
+            Sale expected = legacyCursorToSale(cursor);
+            Sale actual = mapper.map(cursor);
+            assertEquals(expected.getLocalId(), actual.getLocalId());
+            assertEquals(expected.getItemName(), actual.getItemName());
+            assertEquals(expected.getQuantity(), actual.getQuantity());
+            assertEquals(expected.getTotalUSDCents(), actual.getTotalUSDCents());
+            assertEquals(expected.getDebtId(), actual.getDebtId());
+            assertEquals(expected.getSaleDate(), actual.getSaleDate());
+            assertEquals(expected.isSynced(), actual.isSynced());
+        }
+    }
+
+    @Test
+    public void benchmarkSaleMapping() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+
+        SyntheticCursor cursor = salesCursor(ROWS);
+
+        // Warm up both paths before timing
+        for (int i = 0; i < 3; i++) {
+            mapLegacy(cursor);
+            mapWithMapper(cursor);
+        }
+
+        long legacyNanos = 0, mapperNanos = 0;
+        long checksum = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            checksum += mapLegacy(cursor);
+            legacyNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            checksum -= mapWithMapper(cursor);
+            mapperNanos += System.nanoTime() - start;
+        }
+
+        assertEquals(0, checksum);
+        System.out.printf("cursorToSale (legacy): %,.0f rows/s%n", rowsPerSecond(legacyNanos));
+        System.out.printf("SaleMapper:            %,.0f rows/s%n", rowsPerSecond(mapperNanos));
+    }
+
+    private static double rowsPerSecond(long nanos) {
+        return (double) ROWS * ROUNDS / (nanos / 1e9);
+    }
+
+    private static long mapLegacy(SyntheticCursor cursor) {
+        long sum = 0;
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            sum += legacyCursorToSale(cursor).getQuantity();
+        }
+        return sum;
+    }
+
+    private static long mapWithMapper(SyntheticCursor cursor) {
+        long sum = 0;
+        cursor.moveToPosition(-1);
+        SaleMapper mapper = new SaleMapper(cursor);
+        while (cursor.moveToNext()) {
+            sum += mapper.map(cursor).getQuantity();
+        }
+        return sum;
+    }
+
+    private static SyntheticCursor salesCursor(int rows) {
+        Object[][] data = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[]{
+                    "SALE_" + i, null, "LOCAL_" + (i % 500), "Item " + (i % 500), 1 + i % 5,
+                    150L * (1 + i % 5), 4000L * (1 + i % 5), "CASH", 0L, 0L,
+                    i % 10 == 0 ? "DEBT_" + i : null, 1_700_000_000_000L + i, i % 2
+            };
+        }
+        return new SyntheticCursor(SALE_COLUMNS, data);
+    }
+
+    // The pre-mapper implementation, kept here as the baseline
+    private static Sale legacyCursorToSale(Cursor cursor) {
+        Sale sale = new Sale();
+        sale.setLocalId(cursor.getString(cursor.getColumnIndexOrThrow("local_id")));
+        sale.setId(cursor.getString(cursor.getColumnIndexOrThrow("id")));
+        sale.setItemId(cursor.getString(cursor.getColumnIndexOrThrow("item_id")));
+        sale.setItemName(cursor.getString(cursor.getColumnIndexOrThrow("item_name")));
+        sale.setQuantity(cursor.getInt(cursor.getColumnIndexOrThrow("quantity")));
+        sale.setTotalUSDCents(cursor.getLong(cursor.getColumnIndexOrThrow("total_usd_cents")));
+        sale.setTotalZWGCents(cursor.getLong(cursor.getColumnIndexOrThrow("total_zwg_cents")));
+        sale.setPaymentMethod(cursor.getString(cursor.getColumnIndexOrThrow("payment_method")));
+        sale.setDebtUsedUSDCents(cursor.getLong(cursor.getColumnIndexOrThrow("debt_used_usd_cents")));
+        sale.setDebtUsedZWGCents(cursor.getLong(cursor.getColumnIndexOrThrow("debt_used_zwg_cents")));
+        sale.setDebtId(cursor.getString(cursor.getColumnIndexOrThrow("debt_id")));
+        sale.setSaleDate(cursor.getLong(cursor.getColumnIndexOrThrow("sale_date")));
+        sale.setSynced(cursor.getInt(cursor.getColumnIndexOrThrow("synced")) == 1);
+        return sale;
+    }
+}
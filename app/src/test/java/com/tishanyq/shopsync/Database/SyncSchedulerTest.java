@@ -0,0 +1,174 @@
+package com.tishanyq.shopsync.Database;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SyncSchedulerTest {
+    private static final long MINUTE = 60 * 1000L;
+
+    private FakeClock clock;
+    private FakeNetwork network;
+    private SyncScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        network = new FakeNetwork();
+        scheduler = new SyncScheduler(clock, network, new Random(42));
+    }
+
+    @Test
+    public void smallFreshBacklogWaitsUntilItAges() {
+        long changedAt = clock.now;
+        assertFalse(scheduler.shouldSync(0, 0));
+        assertFalse(scheduler.shouldSync(3, changedAt));
+        assertEquals(changedAt + SyncScheduler.MAX_BACKLOG_AGE_MS, scheduler.nextCheckAt(3, changedAt));
+
+        clock.now += SyncScheduler.MAX_BACKLOG_AGE_MS;
+        assertTrue(scheduler.shouldSync(3, changedAt));
+    }
+
+    @Test
+    public void largeBacklogSyncsAtOnce() {
+        assertTrue(scheduler.shouldSync(SyncScheduler.BACKLOG_THRESHOLD, clock.now));
+    }
+
+    @Test
+    public void nothingPendingNeedsNoCheck() {
+        assertEquals(0, scheduler.nextCheckAt(0, 0));
+    }
+
+    @Test
+    public void waitsForNetwork() {
+        network.available = false;
+        clock.now += SyncScheduler.MAX_BACKLOG_AGE_MS;
+        assertFalse(scheduler.shouldSync(500, 0));
+
+        network.available = true;
+        assertTrue(scheduler.shouldSync(500, 0));
+    }
+
+    @Test
+    public void agedBacklogOfflineChecksAgainLater() {
+        long changedAt = clock.now;
+        clock.now += 2 * SyncScheduler.MAX_BACKLOG_AGE_MS;
+        network.available = false;
+        assertFalse(scheduler.shouldSync(3, changedAt));
+        // Not "now": an alarm for now would fire again at once while offline
+        assertEquals(clock.now + SyncScheduler.OFFLINE_CHECK_MS, scheduler.nextCheckAt(3, changedAt));
+    }
+
+    @Test
+    public void agedBacklogWhileRunningNeedsNoAlarm() {
+        long changedAt = clock.now;
+        clock.now += 2 * SyncScheduler.MAX_BACKLOG_AGE_MS;
+        scheduler.onSyncStarted();
+        assertFalse(scheduler.shouldSync(3, changedAt));
+        assertEquals(0, scheduler.nextCheckAt(3, changedAt));
+
+        scheduler.onSyncFailed();
+        assertEquals(scheduler.getRetryAt(), scheduler.nextCheckAt(3, changedAt));
+    }
+
+    @Test
+    public void onlyOneSyncAtATime() {
+        scheduler.onSyncStarted();
+        assertFalse(scheduler.shouldSync(500, 0));
+        scheduler.onSyncSucceeded();
+        assertTrue(scheduler.shouldSync(500, 0));
+    }
+
+    @Test
+    public void failuresBackOffExponentiallyWithJitter() {
+        long previousMax = 0;
+        for (int failure = 1; failure <= 8; failure++) {
+            scheduler.onSyncStarted();
+            scheduler.onSyncFailed();
+            long delay = scheduler.getRetryAt() - clock.now;
+            long full = SyncScheduler.BASE_BACKOFF_MS << (failure - 1);
+            assertTrue("Delay " + delay + " after failure " + failure, delay >= full / 2 && delay <= full);
+            assertTrue(full > previousMax);
+            previousMax = full;
+
+            assertFalse(scheduler.shouldSync(500, 0));
+            assertEquals(scheduler.getRetryAt(), scheduler.nextCheckAt(500, 0));
+            clock.now = scheduler.getRetryAt();
+            // A retry is due even below the backlog threshold
+            assertTrue(scheduler.shouldSync(1, clock.now));
+        }
+    }
+
+    @Test
+    public void backoffIsCapped() {
+        for (int i = 0; i < 40; i++) {
+            scheduler.onSyncFailed();
+            assertTrue(scheduler.getRetryAt() - clock.now <= SyncScheduler.MAX_BACKOFF_MS);
+        }
+    }
+
+    @Test
+    public void jitterSpreadsRetries() {
+        SyncScheduler other = new SyncScheduler(clock, network, new Random(7));
+        for (int i = 0; i < 5; i++) {
+            scheduler.onSyncFailed();
+            other.onSyncFailed();
+        }
+        assertNotEquals(scheduler.getRetryAt(), other.getRetryAt());
+    }
+
+    @Test
+    public void successResetsBackoff() {
+        scheduler.onSyncFailed();
+        scheduler.onSyncFailed();
+        scheduler.onSyncSucceeded();
+        assertEquals(0, scheduler.getFailureCount());
+        assertEquals(0, scheduler.getRetryAt());
+        assertFalse(scheduler.shouldSync(3, clock.now));
+    }
+
+    @Test
+    public void networkRegainedLiftsWaitButKeepsFailureCount() {
+        network.available = false;
+        scheduler.onSyncFailed();
+        scheduler.onSyncFailed();
+        assertFalse(scheduler.shouldSync(3, clock.now));
+
+        network.available = true;
+        scheduler.onNetworkAvailable();
+        assertTrue(scheduler.shouldSync(3, clock.now));
+
+        scheduler.onSyncFailed();
+        assertEquals(3, scheduler.getFailureCount());
+        assertTrue(scheduler.getRetryAt() - clock.now >= (SyncScheduler.BASE_BACKOFF_MS << 2) / 2);
+    }
+
+    @Test
+    public void restoredBackoffIsHonoured() {
+        scheduler.restore(4, clock.now + 10 * MINUTE);
+        assertFalse(scheduler.shouldSync(500, 0));
+        clock.now += 10 * MINUTE;
+        assertTrue(scheduler.shouldSync(500, 0));
+    }
+
+    private static class FakeClock implements SyncScheduler.Clock {
+        long now = 1_700_000_000_000L;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private static class FakeNetwork implements SyncScheduler.Network {
+        boolean available = true;
+
+        @Override
+        public boolean isAvailable() {
+            return available;
+        }
+    }
+}
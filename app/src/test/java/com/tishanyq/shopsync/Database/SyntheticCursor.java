@@ -0,0 +1,123 @@
+package com.tishanyq.shopsync.Database;
+
+import android.content.ContentResolver;
+import android.database.CharArrayBuffer;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.DataSetObserver;
+import android.net.Uri;
+import android.os.Bundle;
+
+/**
+ * In-memory Cursor over a fixed set of rows, for exercising row mappers on the
+ * JVM. Column lookup is a linear name search, like AbstractCursor.
+ */
+class SyntheticCursor implements Cursor {
+    private final String[] columns;
+    private final Object[][] rows;
+    private int position = -1;
+
+    SyntheticCursor(String[] columns, Object[][] rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    @Override public int getCount() { return rows.length; }
+    @Override public int getPosition() { return position; }
+    @Override public boolean move(int offset) { return moveToPosition(position + offset); }
+
+    @Override
+    public boolean moveToPosition(int newPosition) {
+        if (newPosition < -1) newPosition = -1;
+        if (newPosition > rows.length) newPosition = rows.length;
+        position = newPosition;
+        return position >= 0 && position < rows.length;
+    }
+
+    @Override public boolean moveToFirst() { return moveToPosition(0); }
+    @Override public boolean moveToLast() { return moveToPosition(rows.length - 1); }
+    @Override public boolean moveToNext() { return moveToPosition(position + 1); }
+    @Override public boolean moveToPrevious() { return moveToPosition(position - 1); }
+    @Override public boolean isFirst() { return position == 0 && rows.length > 0; }
+    @Override public boolean isLast() { return position == rows.length - 1 && rows.length > 0; }
+    @Override public boolean isBeforeFirst() { return position == -1 || rows.length == 0; }
+    @Override public boolean isAfterLast() { return position == rows.length || rows.length == 0; }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) {
+        int index = getColumnIndex(columnName);
+        if (index < 0) {
+            throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+        }
+        return index;
+    }
+
+    @Override public String getColumnName(int columnIndex) { return columns[columnIndex]; }
+    @Override public String[] getColumnNames() { return columns; }
+    @Override public int getColumnCount() { return columns.length; }
+
+    private Object value(int columnIndex) { return rows[position][columnIndex]; }
+
+    @Override public byte[] getBlob(int columnIndex) { return (byte[]) value(columnIndex); }
+
+    @Override
+    public String getString(int columnIndex) {
+        Object value = value(columnIndex);
+        return value != null ? value.toString() : null;
+    }
+
+    @Override
+    public void copyStringToBuffer(int columnIndex, CharArrayBuffer buffer) {
+        String value = getString(columnIndex);
+        buffer.data = value != null ? value.toCharArray() : new char[0];
+        buffer.sizeCopied = buffer.data.length;
+    }
+
+    private Number number(int columnIndex) {
+        Object value = value(columnIndex);
+        return value instanceof Number ? (Number) value : 0;
+    }
+
+    @Override public short getShort(int columnIndex) { return number(columnIndex).shortValue(); }
+    @Override public int getInt(int columnIndex) { return number(columnIndex).intValue(); }
+    @Override public long getLong(int columnIndex) { return number(columnIndex).longValue(); }
+    @Override public float getFloat(int columnIndex) { return number(columnIndex).floatValue(); }
+    @Override public double getDouble(int columnIndex) { return number(columnIndex).doubleValue(); }
+
+    @Override
+    public int getType(int columnIndex) {
+        Object value = value(columnIndex);
+        if (value == null) return FIELD_TYPE_NULL;
+        if (value instanceof Double || value instanceof Float) return FIELD_TYPE_FLOAT;
+        if (value instanceof Number) return FIELD_TYPE_INTEGER;
+        if (value instanceof byte[]) return FIELD_TYPE_BLOB;
+        return FIELD_TYPE_STRING;
+    }
+
+    @Override public boolean isNull(int columnIndex) { return value(columnIndex) == null; }
+
+    @Override public void deactivate() {}
+    @Override public boolean requery() { return true; }
+    @Override public void close() {}
+    @Override public boolean isClosed() { return false; }
+    @Override public void registerContentObserver(ContentObserver observer) {}
+    @Override public void unregisterContentObserver(ContentObserver observer) {}
+    @Override public void registerDataSetObserver(DataSetObserver observer) {}
+    @Override public void unregisterDataSetObserver(DataSetObserver observer) {}
+    @Override public void setNotificationUri(ContentResolver cr, Uri uri) {}
+    @Override public Uri getNotificationUri() { return null; }
+    @Override public boolean getWantsAllOnMoveCalls() { return false; }
+    @Override public void setExtras(Bundle extras) {}
+    @Override public Bundle getExtras() { return null; }
+    @Override public Bundle respond(Bundle extras) { return null; }
+}
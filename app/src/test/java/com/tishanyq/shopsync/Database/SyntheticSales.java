@@ -0,0 +1,41 @@
+package com.tishanyq.shopsync.Database;
+
+/**
+ * Synthetic sales keyed by index, served a page at a time from the last
+ * local_id the exporter saw, as the keyset query would be. Only the current
+ * page exists, so any number of rows can be exported on the JVM.
+ */
+class SyntheticSales implements DataExporter.PageQuery {
+    private static final String[] COLUMNS = {
+            "local_id", "id", "item_id", "item_name", "quantity", "total_usd_cents", "total_zwg_cents",
+            "payment_method", "debt_used_usd_cents", "debt_used_zwg_cents", "debt_id", "sale_date", "synced"
+    };
+    private static final long START = 1_700_000_000_000L;
+
+    private final int rows;
+
+    SyntheticSales(int rows) {
+        this.rows = rows;
+    }
+
+    static String localId(int index) {
+        String digits = Integer.toString(index);
+        return "SALE_0000000".substring(0, 12 - digits.length()) + digits;
+    }
+
+    @Override
+    public SyntheticCursor fetch(long afterDate, String afterId, int limit) {
+        int first = afterId == null ? 0 : Integer.parseInt(afterId.substring(5)) + 1;
+        int count = Math.max(0, Math.min(limit, rows - first));
+        Object[][] page = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            int n = first + i;
+            page[i] = new Object[]{
+                    localId(n), null, "LOCAL_" + (n % 500), "Item " + (n % 500) + (n % 3 == 0 ? ", \"large\"" : ""),
+                    1 + n % 5, 150L * (1 + n % 5), 4000L * (1 + n % 5), "CASH", 0L, 0L,
+                    n % 10 == 1 ? "DEBT_" + n : null, START + n * 900L, 0
+            };
+        }
+        return new SyntheticCursor(COLUMNS, page);
+    }
+}
@@ -0,0 +1,112 @@
+package com.tishanyq.shopsync.Models;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CartTest {
+
+    private static Item item(String localId, long priceUSDCents, long priceZWGCents, int stock) {
+        Item item = new Item("Item " + localId, "Test", priceUSDCents, priceZWGCents, stock);
+        item.setLocalId(localId);
+        return item;
+    }
+
+    @Test
+    public void keepsRunningTotals() {
+        Cart cart = new Cart();
+        Item bread = item("BREAD", 125, 3500, 10);
+        Item milk = item("MILK", 80, 2250, 10);
+
+        assertTrue(cart.add(bread));
+        assertTrue(cart.add(bread));
+        assertTrue(cart.add(milk));
+
+        assertEquals(330, cart.getTotalUSDCents());
+        assertEquals(9250, cart.getTotalZWGCents());
+        assertEquals(3, cart.getItemCount());
+        assertEquals(2, cart.getQuantity("BREAD"));
+    }
+
+    @Test
+    public void stopsAtStockSeenWhenFirstAdded() {
+        Cart cart = new Cart();
+        Item soap = item("SOAP", 200, 5000, 2);
+
+        assertTrue(cart.add(soap));
+        // Later changes to the Item don't move the snapshot
+        soap.setQuantity(100);
+        soap.setPriceUSDCents(9900);
+        assertTrue(cart.add(soap));
+        assertFalse(cart.add(soap));
+
+        assertEquals(2, cart.getQuantity("SOAP"));
+        assertEquals(400, cart.getTotalUSDCents());
+    }
+
+    @Test
+    public void outOfStockItemIsNotAdded() {
+        Cart cart = new Cart();
+        assertFalse(cart.add(item("NONE", 1, 1, 0)));
+        assertTrue(cart.isEmpty());
+        assertTrue(cart.getQuantities().isEmpty());
+    }
+
+    @Test
+    public void removeOneUpdatesTotalsAndDropsEmptyLines() {
+        Cart cart = new Cart();
+        Item bread = item("BREAD", 125, 3500, 10);
+        Item milk = item("MILK", 80, 2250, 10);
+        cart.add(bread);
+        cart.add(milk);
+        cart.add(milk);
+
+        assertTrue(cart.removeOne("MILK"));
+        assertEquals(205, cart.getTotalUSDCents());
+        assertTrue(cart.removeOne("BREAD"));
+        assertEquals(1, cart.getLines().size());
+        assertFalse(cart.removeOne("BREAD"));
+
+        assertTrue(cart.removeOne("MILK"));
+        assertTrue(cart.isEmpty());
+        assertEquals(0, cart.getTotalUSDCents());
+        assertEquals(0, cart.getTotalZWGCents());
+    }
+
+    @Test
+    public void quantitiesKeepInsertionOrder() {
+        Cart cart = new Cart();
+        cart.add(item("C", 1, 1, 5));
+        cart.add(item("A", 1, 1, 5));
+        cart.add(item("B", 1, 1, 5));
+        cart.add(item("A", 1, 1, 5));
+
+        Map<String, Integer> quantities = cart.getQuantities();
+        assertArrayEquals(new String[]{"C", "A", "B"}, quantities.keySet().toArray());
+        assertEquals(Integer.valueOf(2), quantities.get("A"));
+    }
+
+    @Test
+    public void clearEmptiesEverything() {
+        Cart cart = new Cart();
+        cart.add(item("A", 1, 1, 5));
+        cart.clear();
+        assertTrue(cart.isEmpty());
+        assertEquals(0, cart.getItemCount());
+        assertEquals(0, cart.getTotalUSDCents());
+        assertTrue(cart.add(item("A", 1, 1, 5)));
+    }
+
+    @Test
+    public void largeCartKeepsExactTotals() {
+        Cart cart = new Cart();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(cart.add(item("ITEM_" + i, 10, 1000, 1)));
+        }
+        assertEquals(10_000, cart.getItemCount());
+        // 10,000 x $0.10 summed as doubles comes to 1000.0000000001588
+        assertEquals(100_000, cart.getTotalUSDCents());
+    }
+}
@@ -0,0 +1,133 @@
+package com.tishanyq.shopsync.Models;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LocalIdsTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void idsInTheSameMillisecondAreDistinctAndSorted() {
+        LocalIds ids = new LocalIds(new FakeStore(3));
+        Set<String> seen = new HashSet<>();
+        String previous = "";
+        for (int i = 0; i < 100_000; i++) {
+            String id = ids.generate("SALE_", NOW);
+            assertTrue(seen.add(id));
+            assertTrue(id.compareTo(previous) > 0);
+            previous = id;
+        }
+    }
+
+    @Test
+    public void layoutIsFixedWidth() {
+        String id = new LocalIds(new FakeStore(1)).generate("SALE_", NOW);
+        assertEquals("SALE_".length() + 16, id.length());
+        assertTrue(id.startsWith("SALE_"));
+        // Time, then slot 1, then sequence 0
+        assertTrue(id.endsWith("0100000"));
+        assertTrue(id.matches("SALE_[0-9A-Z]{16}"));
+    }
+
+    @Test
+    public void clockGoingBackDoesNotBreakOrder() {
+        LocalIds ids = new LocalIds(new FakeStore(1));
+        String before = ids.generate("DEBT_", NOW);
+        String after = ids.generate("DEBT_", NOW - 60_000);
+        assertTrue(after.compareTo(before) > 0);
+    }
+
+    @Test
+    public void sequenceIsReservedInBlocks() {
+        FakeStore store = new FakeStore(1);
+        LocalIds ids = new LocalIds(store);
+        for (int i = 0; i < LocalIds.BLOCK_SIZE; i++) {
+            ids.generate("LOCAL_", NOW + i);
+        }
+        assertEquals(1, store.reservations);
+        ids.generate("LOCAL_", NOW);
+        assertEquals(2, store.reservations);
+    }
+
+    @Test
+    public void restartContinuesAfterReservedBlock() {
+        FakeStore store = new FakeStore(1);
+        Set<String> seen = new HashSet<>();
+        for (int run = 0; run < 3; run++) {
+            // A new process, with the clock set back, reusing the saved store
+            LocalIds ids = new LocalIds(store);
+            for (int i = 0; i < 10; i++) {
+                assertTrue(seen.add(ids.generate("SALE_", NOW)));
+            }
+        }
+        assertEquals(3 * LocalIds.BLOCK_SIZE, store.next);
+    }
+
+    @Test
+    public void restartWithClockSetBackStaysUnique() {
+        FakeStore store = new FakeStore(1);
+        LocalIds first = new LocalIds(store);
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(seen.add(first.generate("SALE_", NOW)));
+        }
+
+        // A new process with the clock a day behind
+        LocalIds second = new LocalIds(store);
+        String setBack = second.generate("SALE_", NOW - 24 * 60 * 60 * 1000L);
+        assertTrue(seen.add(setBack));
+        // Order across the restart is not kept, only uniqueness
+        assertTrue(setBack.compareTo(first.generate("SALE_", NOW)) < 0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(seen.add(second.generate("SALE_", NOW)));
+        }
+    }
+
+    @Test
+    public void devicesWithDifferentSlotsNeverCollide() {
+        LocalIds till1 = new LocalIds(new FakeStore(1));
+        LocalIds till2 = new LocalIds(new FakeStore(2));
+        for (int i = 0; i < 1000; i++) {
+            assertNotEquals(till1.generate("SALE_", NOW), till2.generate("SALE_", NOW));
+        }
+    }
+
+    @Test
+    public void newStoreStartsAFreshBlock() {
+        LocalIds ids = new LocalIds(new FakeStore(0));
+        ids.generate("ITEM_", NOW);
+        FakeStore persisted = new FakeStore(4);
+        persisted.next = 5000;
+        ids.replaceStore(persisted);
+        // Slot 4, sequence 5000
+        assertTrue(ids.generate("ITEM_", NOW).endsWith("04003UW"));
+        assertEquals(1, persisted.reservations);
+    }
+
+    private static class FakeStore implements LocalIds.Store {
+        final int slot;
+        long next;
+        int reservations;
+
+        FakeStore(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public int getDeviceSlot() {
+            return slot;
+        }
+
+        @Override
+        public long reserveBlock(int size) {
+            reservations++;
+            long start = next;
+            next += size;
+            return start;
+        }
+    }
+}
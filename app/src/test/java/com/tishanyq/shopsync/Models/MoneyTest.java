@@ -0,0 +1,62 @@
+package com.tishanyq.shopsync.Models;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class MoneyTest {
+
+    @Test
+    public void parsesDecimalTextExactly() {
+        assertEquals(1250, Money.parseCents("12.5"));
+        assertEquals(1250, Money.parseCents(" 12.50 "));
+        assertEquals(-310, Money.parseCents("-3.10"));
+        assertEquals(10000, Money.parseCents("1e2"));
+        assertEquals(7, Money.parseCents("0.07"));
+        // Through a double, (long) (0.29 * 100) would be 28
+        assertEquals(29, Money.parseCents("0.29"));
+    }
+
+    @Test
+    public void roundsHalfUpPastTwoPlaces() {
+        assertEquals(13, Money.parseCents("0.125"));
+        assertEquals(12, Money.parseCents("0.1249"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsText() {
+        Money.parseCents("twelve");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsOutOfRange() {
+        Money.parseCents("1e30");
+    }
+
+    @Test
+    public void formatsTwoPlaces() {
+        assertEquals("12.50", Money.format(1250));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("0.00", Money.format(0));
+        assertEquals("1000000.99", Money.format(100_000_099));
+    }
+
+    @Test
+    public void decimalRoundTrips() {
+        for (long cents : new long[]{0, 1, 29, 110, 999_999_999_99L, -1234}) {
+            BigDecimal decimal = Money.toDecimal(cents);
+            assertEquals(Money.format(cents), decimal.toString());
+            assertEquals(cents, Money.parseCents(decimal.toString()));
+        }
+    }
+
+    @Test
+    public void convertsDoubles() {
+        assertEquals(29, Money.toCents(0.29));
+        assertEquals(-150, Money.toCents(-1.5));
+        assertEquals(0.29, Money.toAmount(29), 0);
+    }
+}
@@ -1,4 +1,5 @@
 import os
+import gzip
 import uuid
 import time
 import secrets
@@ -22,6 +23,31 @@ CORS(app)
 app.config['JSON_SORT_KEYS'] = False
 app.url_map.strict_slashes = False
 
+@app.before_request
+def decompress_request_body():
+    # Devices send sync bodies gzipped (Content-Encoding: gzip)
+    if request.headers.get('Content-Encoding', '').lower() == 'gzip':
+        try:
+            body = gzip.decompress(request.get_data())
+        except (OSError, EOFError):
+            return jsonify({'error': 'Invalid gzip body'}), 400
+        # get_data()/get_json() serve the cached body from here on
+        request._cached_data = body
+
+@app.after_request
+def compress_response(response):
+    if (response.direct_passthrough or response.status_code < 200 or response.status_code >= 300
+            or 'Content-Encoding' in response.headers
+            or 'gzip' not in request.headers.get('Accept-Encoding', '').lower()):
+        return response
+    data = response.get_data()
+    if len(data) < 1024:
+        return response
+    response.set_data(gzip.compress(data))
+    response.headers['Content-Encoding'] = 'gzip'
+    response.headers['Vary'] = 'Accept-Encoding'
+    return response
+
 @app.after_request
 def add_cors_headers(response):
     origin = request.headers.get('Origin')
@@ -31,6 +57,14 @@ def add_cors_headers(response):
     response.headers['Access-Control-Allow-Methods'] = 'GET,POST,PUT,DELETE,OPTIONS'
     return response
 
+def lock_shop_for_changes(cursor, shop_id):
+    """Locks the shop row until commit. Every writer of items, sales and debts
+    takes this before its change_seq is stamped, and a pull waits on it with
+    FOR SHARE, so a pull never returns a change_seq while a lower one for the
+    same shop is still uncommitted. Returns False if the shop doesn't exist."""
+    cursor.execute('SELECT id FROM shops WHERE id = %s FOR UPDATE', (shop_id,))
+    return cursor.fetchone() is not None
+
 def generate_id(prefix=''):
     return f"{prefix}{uuid.uuid4().hex[:12]}"
 
@@ -284,8 +318,7 @@ def create_item(shop_id):
     
     with get_db_context() as conn:
         cursor = conn.cursor()
-        cursor.execute('SELECT id FROM shops WHERE id = %s', (shop_id,))
-        if not cursor.fetchone():
+        if not lock_shop_for_changes(cursor, shop_id):
             return jsonify({'error': 'Shop not found'}), 404
         
         cursor.execute('''
@@ -313,6 +346,8 @@ def update_item(shop_id, item_id):
     
     with get_db_context() as conn:
         cursor = conn.cursor()
+        if not lock_shop_for_changes(cursor, shop_id):
+            return jsonify({'error': 'Shop not found'}), 404
         cursor.execute('SELECT id FROM items WHERE (id = %s OR local_id = %s) AND shop_id = %s', (item_id, item_id, shop_id))
         if not cursor.fetchone():
             return jsonify({'error': 'Item not found'}), 404
@@ -393,8 +428,7 @@ def create_sale(shop_id):
     
     with get_db_context() as conn:
         cursor = conn.cursor()
-        cursor.execute('SELECT id FROM shops WHERE id = %s', (shop_id,))
-        if not cursor.fetchone():
+        if not lock_shop_for_changes(cursor, shop_id):
             return jsonify({'error': 'Shop not found'}), 404
         
         cursor.execute('''
@@ -498,8 +532,7 @@ def create_debt(shop_id):
     
     with get_db_context() as conn:
         cursor = conn.cursor()
-        cursor.execute('SELECT id FROM shops WHERE id = %s', (shop_id,))
-        if not cursor.fetchone():
+        if not lock_shop_for_changes(cursor, shop_id):
             return jsonify({'error': 'Shop not found'}), 404
         
         cursor.execute('''
@@ -527,6 +560,8 @@ def update_debt(shop_id, debt_id):
     
     with get_db_context() as conn:
         cursor = conn.cursor()
+        if not lock_shop_for_changes(cursor, shop_id):
+            return jsonify({'error': 'Shop not found'}), 404
         cursor.execute('SELECT id FROM debts WHERE (id = %s OR local_id = %s) AND shop_id = %s', (debt_id, debt_id, shop_id))
         if not cursor.fetchone():
             return jsonify({'error': 'Debt not found'}), 404
@@ -558,6 +593,8 @@ def update_debt(shop_id, debt_id):
 def clear_debt(shop_id, debt_id):
     with get_db_context() as conn:
         cursor = conn.cursor()
+        if not lock_shop_for_changes(cursor, shop_id):
+            return jsonify({'error': 'Shop not found'}), 404
         cursor.execute('''
             UPDATE debts SET cleared = 1, cleared_at = %s, updated_at = %s
             WHERE (id = %s OR local_id = %s) AND shop_id = %s
@@ -608,8 +645,7 @@ def sync_data(shop_id):
     with get_db_context() as conn:
         cursor = conn.cursor()
         
-        cursor.execute('SELECT id FROM shops WHERE id = %s', (shop_id,))
-        if not cursor.fetchone():
+        if not lock_shop_for_changes(cursor, shop_id):
             return jsonify({'error': 'Shop not found'}), 404
         
         for item in data.get('items', []):
@@ -657,20 +693,24 @@ def sync_data(shop_id):
             if existing:
                 cursor.execute('''
                     UPDATE debts SET customer_name = %s, amount_usd = %s, amount_zwg = %s, type = %s, 
-                                    notes = %s, cleared = %s, cleared_at = %s, updated_at = %s
+                                    notes = %s, cleared = %s, cleared_at = %s, balance_usd = %s,
+                                    balance_zwg = %s, updated_at = %s
                     WHERE local_id = %s AND shop_id = %s
                 ''', (debt.get('customer_name'), debt.get('amount_usd', 0), debt.get('amount_zwg', 0),
                       debt.get('type', 'CREDIT_USED'), debt.get('notes', ''), 
-                      1 if debt.get('cleared') else 0, debt.get('cleared_at'), get_timestamp(), local_id, shop_id))
+                      1 if debt.get('cleared') else 0, debt.get('cleared_at'), debt.get('balance_usd'),
+                      debt.get('balance_zwg'), get_timestamp(), local_id, shop_id))
                 results['debts']['updated'] += 1
             else:
                 debt_id = generate_id('DEBT_')
                 cursor.execute('''
-                    INSERT INTO debts (id, local_id, shop_id, customer_name, amount_usd, amount_zwg, type, notes, created_at)
-                    VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s)
+                    INSERT INTO debts (id, local_id, shop_id, customer_name, amount_usd, amount_zwg, type, notes, created_at,
+                                       cleared, cleared_at, balance_usd, balance_zwg)
+                    VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s)
                 ''', (debt_id, local_id, shop_id, debt.get('customer_name'), debt.get('amount_usd', 0),
                       debt.get('amount_zwg', 0), debt.get('type', 'CREDIT_USED'), debt.get('notes', ''),
-                      debt.get('created_at', get_timestamp())))
+                      debt.get('created_at', get_timestamp()), 1 if debt.get('cleared') else 0,
+                      debt.get('cleared_at'), debt.get('balance_usd'), debt.get('balance_zwg')))
                 results['debts']['created'] += 1
         
         cursor.execute('INSERT INTO sync_logs (shop_id, success) VALUES (%s, 1)', (shop_id,))
@@ -681,6 +721,56 @@ def sync_data(shop_id):
         'sync_time': get_timestamp()
     })
 
+SYNC_PULL_MAX_LIMIT = 5000
+
+@app.route('/api/shops/<shop_id>/sync/changes', methods=['GET'])
+def get_sync_changes(shop_id):
+    """Rows of items, sales and debts changed after the `since` token, oldest
+    change first. Pass the returned next_token as `since` until has_more is false."""
+    app_id = request.headers.get('X-App-Id')
+    since = request.args.get('since', 0, type=int)
+    limit = min(max(request.args.get('limit', 1000, type=int), 1), SYNC_PULL_MAX_LIMIT)
+    
+    with get_db_context() as conn:
+        cursor = conn.cursor()
+        cursor.execute('''
+            SELECT status, expires_at FROM shop_devices WHERE app_id = %s AND shop_id = %s
+        ''', (app_id, shop_id))
+        device = cursor.fetchone()
+        
+        if not device:
+            return jsonify({'error': 'Device not registered'}), 403
+        if device['status'] != 'active':
+            return jsonify({'error': 'Device not activated', 'status': device['status']}), 403
+        if device['expires_at'] and device['expires_at'] < get_timestamp():
+            return jsonify({'error': 'License expired', 'expired': True}), 403
+        
+        # Waits for any write to this shop's items, sales or debts that is
+        # still committing (see lock_shop_for_changes)
+        cursor.execute('SELECT id FROM shops WHERE id = %s FOR SHARE', (shop_id,))
+        
+        changes = []
+        for table in ('items', 'sales', 'debts'):
+            cursor.execute(f'''
+                SELECT * FROM {table} WHERE shop_id = %s AND change_seq > %s
+                ORDER BY change_seq LIMIT %s
+            ''', (shop_id, since, limit + 1))
+            for row in cursor.fetchall():
+                change = dict(row)
+                change['table'] = table
+                changes.append(change)
+    
+    changes.sort(key=lambda change: change['change_seq'])
+    has_more = len(changes) > limit
+    changes = changes[:limit]
+    next_token = changes[-1]['change_seq'] if changes else since
+    
+    return jsonify({
+        'changes': changes,
+        'next_token': next_token,
+        'has_more': has_more
+    })
+
 @app.route('/api/shops/<shop_id>/sync/status', methods=['GET'])
 def get_sync_status(shop_id):
     with get_db_context() as conn:
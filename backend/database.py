@@ -207,6 +207,29 @@ def init_db():
         cursor.execute("CREATE INDEX IF NOT EXISTS idx_shop_devices_shop ON shop_devices(shop_id)")
         cursor.execute("CREATE INDEX IF NOT EXISTS idx_shop_devices_app ON shop_devices(app_id)")
 
+        # PULL SYNC: every write to a synced table stamps the row with the next
+        # value of one sequence, so devices can ask for changes after a token
+        cursor.execute("ALTER TABLE debts ADD COLUMN IF NOT EXISTS balance_usd REAL")
+        cursor.execute("ALTER TABLE debts ADD COLUMN IF NOT EXISTS balance_zwg REAL")
+        cursor.execute("CREATE SEQUENCE IF NOT EXISTS sync_change_seq")
+        cursor.execute("""
+            CREATE OR REPLACE FUNCTION stamp_change_seq() RETURNS trigger AS $$
+            BEGIN
+                NEW.change_seq := nextval('sync_change_seq');
+                RETURN NEW;
+            END;
+            $$ LANGUAGE plpgsql
+        """)
+        for table in ('items', 'sales', 'debts'):
+            cursor.execute(f"ALTER TABLE {table} ADD COLUMN IF NOT EXISTS change_seq BIGINT")
+            cursor.execute(f"""
+                CREATE OR REPLACE TRIGGER {table}_change_seq BEFORE INSERT OR UPDATE ON {table}
+                FOR EACH ROW EXECUTE FUNCTION stamp_change_seq()
+            """)
+            # Rows written before the trigger existed; the trigger stamps them
+            cursor.execute(f"UPDATE {table} SET change_seq = 0 WHERE change_seq IS NULL")
+            cursor.execute(f"CREATE INDEX IF NOT EXISTS idx_{table}_shop_change ON {table}(shop_id, change_seq)")
+
         # ADMIN SETUP
         create_admin_tables(cursor)
         seed_admin_user(cursor)